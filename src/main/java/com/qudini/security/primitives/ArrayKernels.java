@@ -0,0 +1,110 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The inner loops that newer JDKs can run faster, kept apart so the JAR can carry a version of this class for each.
+ * This is the JDK 8 version; the multi-release JAR holds a JDK 9 version under {@code META-INF/versions/9}, which the
+ * JVM loads instead when it can. Every version must keep the same signatures and results.
+ */
+@CheckReturnValue
+@ParametersAreNonnullByDefault
+final class ArrayKernels {
+
+    private ArrayKernels() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * ORs together the XOR of every word of two array ranges over the first {@code checks} bytes, as
+     * {@link ConstantTimeOperations#difference} does for buffers.
+     */
+    static long difference(
+            final byte[] xs,
+            final int xsOffset,
+            final int xsLength,
+            final byte[] ys,
+            final int ysOffset,
+            final int ysLength,
+            final int checks
+    ) {
+        // Native order saves a byte swap per word; it does not matter which order the bytes are compared in.
+        return ConstantTimeOperations.difference(
+                ByteBuffer.wrap(xs).order(ByteOrder.nativeOrder()), xsOffset, xsLength,
+                ByteBuffer.wrap(ys).order(ByteOrder.nativeOrder()), ysOffset, ysLength,
+                checks
+        );
+    }
+
+    /**
+     * ORs together the XOR of the first {@code length} bytes of two array ranges, a word at a time, without exiting
+     * early. Unlike the padded overload, nothing past the ranges is read, so this suits comparing ranges of one length.
+     */
+    static long difference(final byte[] xs, final int xsOffset, final byte[] ys, final int ysOffset, final int length) {
+        final ByteBuffer xsWords = ByteBuffer.wrap(xs).order(ByteOrder.nativeOrder());
+        final ByteBuffer ysWords = ByteBuffer.wrap(ys).order(ByteOrder.nativeOrder());
+        long result = 0;
+        int position = 0;
+        for (; position <= length - Long.BYTES; position += Long.BYTES) {
+            result |= xsWords.getLong(xsOffset + position) ^ ysWords.getLong(ysOffset + position);
+        }
+        for (; position < length; ++position) {
+            result |= xs[xsOffset + position] ^ ys[ysOffset + position];
+        }
+        return result;
+    }
+
+    /**
+     * Pack {@code count} pairs of bytes into chars, big-endian.
+     */
+    static void bytesToChars(
+            final byte[] bytes,
+            final int bytesOffset,
+            final char[] chars,
+            final int charsOffset,
+            final int count
+    ) {
+        for (int i = 0; i < count; ++i) {
+            final int position = bytesOffset + 2 * i;
+            chars[charsOffset + i] = (char) ((bytes[position] << 8) | (bytes[position + 1] & 0xFF));
+        }
+    }
+
+    /**
+     * The four bytes of an array from {@code index} as an int, little-endian.
+     */
+    static int littleEndianInt(final byte[] array, final int index) {
+        return (array[index] & 0xFF)
+                | (array[index + 1] & 0xFF) << 8
+                | (array[index + 2] & 0xFF) << 16
+                | array[index + 3] << 24;
+    }
+
+    /**
+     * {@code index} if it lies within {@code length}.
+     *
+     * @throws IndexOutOfBoundsException if it does not.
+     */
+    static int checkIndex(final int index, final int length) {
+        if (index < 0 || length <= index) {
+            throw new IndexOutOfBoundsException("index " + index + " is out of bounds for length " + length);
+        }
+        return index;
+    }
+
+    /**
+     * Checks that {@code length} elements from {@code offset} lie within an array of {@code arrayLength}.
+     *
+     * @throws IndexOutOfBoundsException if they do not.
+     */
+    static void checkRange(final int arrayLength, final int offset, final int length) {
+        if (offset < 0 || length < 0 || arrayLength - offset < length) {
+            throw new IndexOutOfBoundsException(
+                    "offset " + offset + " and length " + length + " are out of bounds for length " + arrayLength
+            );
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Shreds dead secrets on a background daemon thread, taking them off the request thread's latency path. Ownership of
+ * each array passes to the shredder; callers must not touch it afterwards.
+ * <p>
+ * The queue is bounded: when it is full, the secret is shredded inline on the calling thread instead, so memory use
+ * stays bounded and no secret is ever dropped. Closing the shredder drains everything still queued before returning.
+ *
+ * @see Shredding#setAsyncShredder(AsyncShredder)
+ */
+@ParametersAreNonnullByDefault
+public final class AsyncShredder implements AutoCloseable {
+
+    private static final int BATCH_SIZE = 64;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int capacity;
+    private final ShredPolicy policy;
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Thread worker;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder shreddedInline = new LongAdder();
+
+    // Only written by the worker thread.
+    private volatile long shreddedInBackground;
+    private volatile long failedInBackground;
+    private volatile long totalLagNanos;
+    private volatile long maxLagNanos;
+
+    private volatile boolean idle;
+    private volatile boolean closed;
+
+    private AsyncShredder(final int capacity, final ShredPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be a positive number");
+        }
+        this.capacity = capacity;
+        this.policy = Objects.requireNonNull(policy);
+        this.worker = new Thread(this::run, "async-shredder");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    /**
+     * Start a shredder that holds at most {@code capacity} pending secrets and shreds them with the default policy.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static AsyncShredder start(final int capacity) {
+        return start(capacity, Shredding.getDefaultPolicy());
+    }
+
+    @Nonnull
+    @CheckReturnValue
+    public static AsyncShredder start(final int capacity, final ShredPolicy policy) {
+        final AsyncShredder shredder = new AsyncShredder(capacity, policy);
+        shredder.worker.start();
+        return shredder;
+    }
+
+    /**
+     * Take ownership of a byte array and shred it in the background.
+     */
+    public void shred(final byte[] bytes) {
+        enqueue(bytes);
+    }
+
+    /**
+     * Take ownership of a char array and shred it in the background.
+     */
+    public void shred(final char[] chars) {
+        enqueue(chars);
+    }
+
+    /**
+     * Take ownership of a StringBuilder and shred it in the background.
+     */
+    public void shred(final StringBuilder builder) {
+        enqueue(builder);
+    }
+
+    private void enqueue(final Object secret) {
+        Objects.requireNonNull(secret);
+
+        // Reserve a slot before checking for closing: a closing worker waits until every reserved slot is shredded, so
+        // a producer that sees the shredder open always has its secret drained.
+        if (depth.incrementAndGet() <= capacity && !closed) {
+            queue.add(new Pending(secret, System.nanoTime()));
+            queued.increment();
+            if (idle) {
+                LockSupport.unpark(worker);
+            }
+            return;
+        }
+        depth.decrementAndGet();
+
+        shreddedInline.increment();
+        Shredding.shredAll(Collections.singletonList(secret), policy);
+    }
+
+    /**
+     * The number of secrets waiting to be shredded.
+     */
+    @CheckReturnValue
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    /**
+     * The number of secrets that have been handed over, whether they were queued or shredded inline.
+     */
+    @CheckReturnValue
+    public long getSubmittedCount() {
+        return queued.sum() + shreddedInline.sum();
+    }
+
+    /**
+     * The number of secrets shredded on the calling thread because the queue was full or the shredder closed.
+     */
+    @CheckReturnValue
+    public long getInlineShredCount() {
+        return shreddedInline.sum();
+    }
+
+    /**
+     * The number of secrets shredded by the background thread.
+     */
+    @CheckReturnValue
+    public long getBackgroundShredCount() {
+        return shreddedInBackground;
+    }
+
+    /**
+     * The number of secrets the background thread failed to shred because shredding them threw.
+     */
+    @CheckReturnValue
+    public long getBackgroundFailureCount() {
+        return failedInBackground;
+    }
+
+    /**
+     * The longest time a secret has waited between being handed over and being shredded.
+     */
+    @CheckReturnValue
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    /**
+     * The mean time secrets have waited between being handed over and being shredded.
+     */
+    @CheckReturnValue
+    public long getMeanLagNanos() {
+        final long count = shreddedInBackground + failedInBackground;
+        return count == 0 ? 0 : totalLagNanos / count;
+    }
+
+    /**
+     * Stop accepting secrets for the background thread, and wait until everything already queued is shredded.
+     * Secrets handed over after closing are shredded inline.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (final InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        final List<Object> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            long oldestEnqueuedAt = 0;
+            long lagNanos = 0;
+            for (Pending pending; batch.size() < BATCH_SIZE && (pending = queue.poll()) != null; ) {
+                if (batch.isEmpty()) {
+                    oldestEnqueuedAt = pending.enqueuedAt;
+                }
+                batch.add(pending.secret);
+                lagNanos -= pending.enqueuedAt;
+            }
+
+            if (!batch.isEmpty()) {
+                final int failures = shredBatch(batch);
+                final long now = System.nanoTime();
+                final int count = batch.size();
+                batch.clear();
+                depth.addAndGet(-count);
+
+                totalLagNanos += lagNanos + now * count;
+                maxLagNanos = Math.max(maxLagNanos, now - oldestEnqueuedAt);
+                shreddedInBackground += count - failures;
+                failedInBackground += failures;
+                continue;
+            }
+
+            // A producer that saw the shredder open reserved its slot first, but may not have queued its secret yet, so
+            // only stop once every reserved slot has been shredded.
+            if (closed) {
+                if (depth.get() == 0) {
+                    return;
+                }
+                Thread.yield();
+                continue;
+            }
+
+            idle = true;
+            if (queue.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+        }
+    }
+
+    /**
+     * Shred a batch, falling back to one secret at a time if that throws, so a secret that cannot be shredded neither
+     * leaves the rest of its batch intact nor stops the worker. Even an {@link Error} is only counted: the worker is
+     * the only thread that drains the queue, so if it died, everything queued would stay in memory unshredded.
+     *
+     * @return the number of secrets that could not be shredded.
+     */
+    private int shredBatch(final List<Object> batch) {
+        try {
+            Shredding.shredAll(batch, policy);
+            return 0;
+        } catch (final Throwable batchFailure) {
+            int failures = 0;
+            for (final Object secret : batch) {
+                try {
+                    Shredding.shredAll(Collections.singletonList(secret), policy);
+                } catch (final Throwable failure) {
+                    ++failures;
+                }
+            }
+            return failures;
+        }
+    }
+
+    private static final class Pending {
+
+        final Object secret;
+        final long enqueuedAt;
+
+        Pending(final Object secret, final long enqueuedAt) {
+            this.secret = secret;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
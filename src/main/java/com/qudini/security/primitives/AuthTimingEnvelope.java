@@ -0,0 +1,144 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers authentication calls at a fixed time after they start, however long the check itself took, so that response
+ * times do not reveal whether a user exists or how far a check got:
+ * <pre>{@code
+ * final AuthTimingEnvelope envelope = AuthTimingEnvelope.create(Duration.ofMillis(250));
+ * final CompletableFuture<Boolean> authenticated = envelope.submit(() -> attempt.equals(stored, 64));
+ * }</pre>
+ * The future completes once the budget has passed since the call, on a shared timer wheel thread rather than by
+ * sleeping or spinning, so thousands of padded calls can be in flight with a handful of threads. A failing check
+ * completes the future exceptionally at the same time. Dependent stages attached without {@code Async} run on the timer
+ * wheel thread and delay every other envelope, so attach slow ones with an executor.
+ * <p>
+ * A check that takes longer than the budget is answered as soon as it finishes, which does reveal its duration; the
+ * envelope counts these overruns so the budget can be raised.
+ */
+@ParametersAreNonnullByDefault
+public final class AuthTimingEnvelope {
+
+    private final long budgetNanos;
+    private final Executor executor;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder overruns = new LongAdder();
+    private final LongAccumulator maxOverrunNanos = new LongAccumulator(Math::max, 0);
+
+    private AuthTimingEnvelope(final Duration budget, final Executor executor) {
+        if (budget.isNegative() || budget.isZero()) {
+            throw new IllegalArgumentException("budget must be positive");
+        }
+        this.budgetNanos = budget.toNanos();
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Create an envelope that runs checks on the thread submitting them; that thread is only held for the check
+     * itself, not the padding.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static AuthTimingEnvelope create(final Duration budget) {
+        return new AuthTimingEnvelope(budget, Runnable::run);
+    }
+
+    /**
+     * Create an envelope that runs checks on an executor. The budget starts when a check is submitted, so it includes
+     * any time queued on the executor.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static AuthTimingEnvelope create(final Duration budget, final Executor executor) {
+        return new AuthTimingEnvelope(budget, executor);
+    }
+
+    /**
+     * Run an authentication check, and complete the returned future with its result once the budget has passed.
+     */
+    @Nonnull
+    public <T> CompletableFuture<T> submit(final Callable<T> check) {
+        Objects.requireNonNull(check);
+        final long deadlineNanos = System.nanoTime() + budgetNanos;
+        final CompletableFuture<T> response = new CompletableFuture<>();
+        calls.increment();
+
+        executor.execute(() -> {
+            T result = null;
+            Throwable failure = null;
+            try {
+                result = check.call();
+            } catch (final Throwable throwable) {
+                failure = throwable;
+            }
+            respond(response, deadlineNanos, result, failure);
+        });
+        return response;
+    }
+
+    /**
+     * The number of checks submitted.
+     */
+    @CheckReturnValue
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * The number of checks that finished after their budget had passed.
+     */
+    @CheckReturnValue
+    public long getOverrunCount() {
+        return overruns.sum();
+    }
+
+    /**
+     * The furthest any check has finished past its budget.
+     */
+    @CheckReturnValue
+    public long getMaxOverrunNanos() {
+        return maxOverrunNanos.get();
+    }
+
+    @Nonnull
+    @CheckReturnValue
+    public Duration getBudget() {
+        return Duration.ofNanos(budgetNanos);
+    }
+
+    private <T> void respond(
+            final CompletableFuture<T> response,
+            final long deadlineNanos,
+            @Nullable final T result,
+            @Nullable final Throwable failure
+    ) {
+        final Runnable completion = () -> {
+            if (failure == null) {
+                response.complete(result);
+            } else {
+                response.completeExceptionally(failure);
+            }
+        };
+
+        final long overrunNanos = System.nanoTime() - deadlineNanos;
+        if (overrunNanos < 0) {
+            TimerWheel.shared().schedule(deadlineNanos, completion);
+        } else {
+            overruns.increment();
+            maxOverrunNanos.accumulate(overrunNanos);
+            completion.run();
+        }
+    }
+}
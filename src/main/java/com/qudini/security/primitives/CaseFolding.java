@@ -0,0 +1,58 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import java.util.Arrays;
+
+/**
+ * Folds the case of BMP characters through a table computed once, so that case-insensitive comparisons neither
+ * allocate nor call into {@link Character}'s branching case mappings for every character.
+ * <p>
+ * A character's fold is {@code Character.toLowerCase(Character.toUpperCase(c))}, so two characters fold to the same
+ * value exactly when {@link String#equalsIgnoreCase(String)} considers them equal. The table stores the difference
+ * between each character and its fold in blocks of 256 characters; most blocks have no cased characters at all and
+ * share one block of zeros, which keeps the table to a few KiB that stay in cache.
+ */
+@CheckReturnValue
+final class CaseFolding {
+
+    private static final int BLOCK_SHIFT = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    // The offset into DELTAS of each block of characters.
+    private static final int[] BLOCKS = new int[(Character.MAX_VALUE + 1) >>> BLOCK_SHIFT];
+    private static final char[] DELTAS;
+
+    static {
+        char[] deltas = new char[0];
+        for (int block = 0; block < BLOCKS.length; ++block) {
+            final char[] blockDeltas = new char[BLOCK_SIZE];
+            for (int i = 0; i < BLOCK_SIZE; ++i) {
+                final char c = (char) ((block << BLOCK_SHIFT) | i);
+                blockDeltas[i] = (char) (Character.toLowerCase(Character.toUpperCase(c)) - c);
+            }
+
+            int offset = 0;
+            while (offset < deltas.length && !Arrays.equals(
+                    Arrays.copyOfRange(deltas, offset, offset + BLOCK_SIZE),
+                    blockDeltas
+            )) {
+                offset += BLOCK_SIZE;
+            }
+            if (offset == deltas.length) {
+                deltas = Arrays.copyOf(deltas, deltas.length + BLOCK_SIZE);
+                System.arraycopy(blockDeltas, 0, deltas, offset, BLOCK_SIZE);
+            }
+            BLOCKS[block] = offset;
+        }
+        DELTAS = deltas;
+    }
+
+    private CaseFolding() {
+        throw new UnsupportedOperationException();
+    }
+
+    static char fold(final char c) {
+        return (char) (c + DELTAS[BLOCKS[c >>> BLOCK_SHIFT] + (c & BLOCK_MASK)]);
+    }
+}
@@ -0,0 +1,693 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Hex and Base64 encoding and decoding in constant time, for secrets such as keys and hashes. Symbols are computed
+ * with arithmetic rather than looked up in tables, so neither the branches taken nor the memory read depend on the
+ * data, and everything is written into caller-supplied destinations, so nothing is allocated.
+ * <p>
+ * Hex is encoded in lower case, and decoded in either case. Base64 is encoded with padding, as
+ * {@link java.util.Base64} does, and decoded with or without it. Invalid input is only reported once all of it has
+ * been decoded, without saying where it was; the destination range written so far is zeroed first.
+ * <p>
+ * The array methods return the number of elements written. The buffer methods consume the source's remaining
+ * elements and advance the destination's position past those written, like a {@link java.nio.charset.CharsetEncoder}.
+ */
+@ParametersAreNonnullByDefault
+public final class ConstantTimeEncoding {
+
+    /**
+     * The two Base64 alphabets of RFC 4648.
+     */
+    public enum Alphabet {
+
+        /**
+         * The standard alphabet, ending in {@code +} and {@code /}.
+         */
+        BASE64('+', '/'),
+
+        /**
+         * The URL- and filename-safe alphabet, ending in {@code -} and {@code _}.
+         */
+        BASE64_URL('-', '_');
+
+        private final int symbol62;
+        private final int symbol63;
+
+        Alphabet(final char symbol62, final char symbol63) {
+            this.symbol62 = symbol62;
+            this.symbol63 = symbol63;
+        }
+    }
+
+    private static final char PADDING = '=';
+    private static final long LANES = 0x0101_0101_0101_0101L;
+
+    private ConstantTimeEncoding() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The number of characters {@code length} bytes encode to in hex.
+     */
+    @CheckReturnValue
+    public static int hexLength(final int length) {
+        checkLength(length, Integer.MAX_VALUE / 2);
+        return length * 2;
+    }
+
+    /**
+     * The number of characters {@code length} bytes encode to in padded Base64.
+     */
+    @CheckReturnValue
+    public static int base64Length(final int length) {
+        checkLength(length, Integer.MAX_VALUE / 4 * 3);
+        return (length + 2) / 3 * 4;
+    }
+
+    /**
+     * The most bytes {@code length} characters of Base64 can decode to; fewer if the input is padded.
+     */
+    @CheckReturnValue
+    public static int maxDecodedBase64Length(final int length) {
+        checkLength(length, Integer.MAX_VALUE);
+        return length / 4 * 3 + Math.max(0, length % 4 - 1);
+    }
+
+    /**
+     * Encode bytes as hex into chars. Nothing is allocated: the destination stays the caller's, and now holds the
+     * secret in another form, so the caller must shred it, e.g. with {@link Shredding#shred(char[])}, once done.
+     */
+    public static int encodeHex(
+            final byte[] source,
+            final int sourceOffset,
+            final int length,
+            final char[] destination,
+            final int destinationOffset
+    ) {
+        ArrayKernels.checkRange(source.length, sourceOffset, length);
+        ArrayKernels.checkRange(destination.length, destinationOffset, hexLength(length));
+
+        for (int i = 0, d = destinationOffset; i < length; ++i, d += 2) {
+            final int b = source[sourceOffset + i];
+            destination[d] = hexSymbol((b >> 4) & 0xF);
+            destination[d + 1] = hexSymbol(b & 0xF);
+        }
+        return length * 2;
+    }
+
+    /**
+     * Encode bytes as hex into ASCII bytes.
+     */
+    public static int encodeHex(
+            final byte[] source,
+            final int sourceOffset,
+            final int length,
+            final byte[] destination,
+            final int destinationOffset
+    ) {
+        ArrayKernels.checkRange(source.length, sourceOffset, length);
+        ArrayKernels.checkRange(destination.length, destinationOffset, hexLength(length));
+
+        for (int i = 0, d = destinationOffset; i < length; ++i, d += 2) {
+            final int b = source[sourceOffset + i];
+            destination[d] = (byte) hexSymbol((b >> 4) & 0xF);
+            destination[d + 1] = (byte) hexSymbol(b & 0xF);
+        }
+        return length * 2;
+    }
+
+    /**
+     * Encode the remaining bytes of a buffer as hex into ASCII bytes.
+     *
+     * @throws BufferOverflowException if the destination has too little space remaining; neither buffer is changed.
+     */
+    public static void encodeHex(final ByteBuffer source, final ByteBuffer destination) {
+        final int length = source.remaining();
+        final int encodedLength = hexLength(length);
+        if (destination.remaining() < encodedLength) {
+            throw new BufferOverflowException();
+        }
+
+        final int from = source.position();
+        final int to = destination.position();
+        for (int i = 0; i < length; ++i) {
+            final int b = source.get(from + i);
+            destination.put(to + 2 * i, (byte) hexSymbol((b >> 4) & 0xF));
+            destination.put(to + 2 * i + 1, (byte) hexSymbol(b & 0xF));
+        }
+        advance(source, length);
+        advance(destination, encodedLength);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the length is odd or any character is not a hex digit.
+     */
+    public static int decodeHex(
+            final char[] source,
+            final int sourceOffset,
+            final int length,
+            final byte[] destination,
+            final int destinationOffset
+    ) {
+        ArrayKernels.checkRange(source.length, sourceOffset, length);
+        checkHexLength(length);
+        ArrayKernels.checkRange(destination.length, destinationOffset, length / 2);
+
+        int invalid = 0;
+        for (int i = 0, s = sourceOffset; i < length / 2; ++i, s += 2) {
+            final int high = hexValue(source[s]);
+            final int low = hexValue(source[s + 1]);
+            invalid |= high | low;
+            destination[destinationOffset + i] = (byte) ((high << 4) | low);
+        }
+        return checkDecoded(invalid, destination, destinationOffset, length / 2);
+    }
+
+    /**
+     * Decode hex from ASCII bytes.
+     *
+     * @throws IllegalArgumentException if the length is odd or any byte is not a hex digit.
+     */
+    public static int decodeHex(
+            final byte[] source,
+            final int sourceOffset,
+            final int length,
+            final byte[] destination,
+            final int destinationOffset
+    ) {
+        ArrayKernels.checkRange(source.length, sourceOffset, length);
+        checkHexLength(length);
+        ArrayKernels.checkRange(destination.length, destinationOffset, length / 2);
+
+        int invalid = 0;
+        for (int i = 0, s = sourceOffset; i < length / 2; ++i, s += 2) {
+            final int high = hexValue(source[s] & 0xFF);
+            final int low = hexValue(source[s + 1] & 0xFF);
+            invalid |= high | low;
+            destination[destinationOffset + i] = (byte) ((high << 4) | low);
+        }
+        return checkDecoded(invalid, destination, destinationOffset, length / 2);
+    }
+
+    /**
+     * Decode the remaining ASCII hex bytes of a buffer.
+     *
+     * @throws IllegalArgumentException if the length is odd or any byte is not a hex digit.
+     * @throws BufferOverflowException  if the destination has too little space remaining; neither buffer is changed.
+     */
+    public static void decodeHex(final ByteBuffer source, final ByteBuffer destination) {
+        final int length = source.remaining();
+        checkHexLength(length);
+        if (destination.remaining() < length / 2) {
+            throw new BufferOverflowException();
+        }
+
+        final int from = source.position();
+        final int to = destination.position();
+        int invalid = 0;
+        for (int i = 0; i < length / 2; ++i) {
+            final int high = hexValue(source.get(from + 2 * i) & 0xFF);
+            final int low = hexValue(source.get(from + 2 * i + 1) & 0xFF);
+            invalid |= high | low;
+            destination.put(to + i, (byte) ((high << 4) | low));
+        }
+        checkDecoded(invalid, destination, to, length / 2);
+        advance(source, length);
+        advance(destination, length / 2);
+    }
+
+    /**
+     * Encode bytes as Base64 into chars. Nothing is allocated: the destination stays the caller's, and now holds the
+     * secret in another form, so the caller must shred it, e.g. with {@link Shredding#shred(char[])}, once done.
+     */
+    public static int encodeBase64(
+            final Alphabet alphabet,
+            final byte[] source,
+            final int sourceOffset,
+            final int length,
+            final char[] destination,
+            final int destinationOffset
+    ) {
+        ArrayKernels.checkRange(source.length, sourceOffset, length);
+        final int encodedLength = base64Length(length);
+        ArrayKernels.checkRange(destination.length, destinationOffset, encodedLength);
+
+        final int symbol62 = alphabet.symbol62;
+        final int symbol63 = alphabet.symbol63;
+        final int blocks = length / 6;
+        for (int block = 0; block < blocks; ++block) {
+            final int s = sourceOffset + 6 * block;
+            final int d = destinationOffset + 8 * block;
+            final long symbols = base64Symbols(
+                    sixBytes(source[s], source[s + 1], source[s + 2], source[s + 3], source[s + 4], source[s + 5]),
+                    symbol62,
+                    symbol63
+            );
+            for (int k = 0; k < 8; ++k) {
+                destination[d + k] = (char) lane(symbols, k);
+            }
+        }
+
+        final int tail = length - 6 * blocks;
+        if (tail > 0) {
+            final int s = sourceOffset + 6 * blocks;
+            final int d = destinationOffset + 8 * blocks;
+            long block = 0;
+            for (int k = 0; k < 6; ++k) {
+                block = (block << Byte.SIZE) | (k < tail ? source[s + k] & 0xFF : 0);
+            }
+            final long symbols = base64Symbols(block, symbol62, symbol63);
+            for (int k = 0, symbolCount = symbolCount(tail); k < base64Length(tail); ++k) {
+                destination[d + k] = (char) (k < symbolCount ? lane(symbols, k) : PADDING);
+            }
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Encode bytes as Base64 into ASCII bytes.
+     */
+    public static int encodeBase64(
+            final Alphabet alphabet,
+            final byte[] source,
+            final int sourceOffset,
+            final int length,
+            final byte[] destination,
+            final int destinationOffset
+    ) {
+        ArrayKernels.checkRange(source.length, sourceOffset, length);
+        final int encodedLength = base64Length(length);
+        ArrayKernels.checkRange(destination.length, destinationOffset, encodedLength);
+
+        // Big-endian views read and write a block's bytes and symbols with a few wide accesses rather than one each.
+        final ByteBuffer sourceWords = ByteBuffer.wrap(source);
+        final ByteBuffer destinationWords = ByteBuffer.wrap(destination);
+        final int symbol62 = alphabet.symbol62;
+        final int symbol63 = alphabet.symbol63;
+        final int blocks = length / 6;
+        for (int block = 0; block < blocks; ++block) {
+            final int s = sourceOffset + 6 * block;
+            final long bytes = ((sourceWords.getInt(s) & 0xFFFF_FFFFL) << 16) | (sourceWords.getShort(s + 4) & 0xFFFF);
+            destinationWords.putLong(destinationOffset + 8 * block, base64Symbols(bytes, symbol62, symbol63));
+        }
+
+        final int tail = length - 6 * blocks;
+        if (tail > 0) {
+            final int s = sourceOffset + 6 * blocks;
+            final int d = destinationOffset + 8 * blocks;
+            long block = 0;
+            for (int k = 0; k < 6; ++k) {
+                block = (block << Byte.SIZE) | (k < tail ? source[s + k] & 0xFF : 0);
+            }
+            // Lanes past the last symbol become padding, and only the quanta the tail encodes to are written.
+            final long padding = -1L >>> (Byte.SIZE * symbolCount(tail));
+            final long symbols = (base64Symbols(block, symbol62, symbol63) & ~padding) | (PADDING * LANES & padding);
+            if (tail > 3) {
+                destinationWords.putLong(d, symbols);
+            } else {
+                destinationWords.putInt(d, (int) (symbols >>> 32));
+            }
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Encode the remaining bytes of a buffer as Base64 into ASCII bytes.
+     *
+     * @throws BufferOverflowException if the destination has too little space remaining; neither buffer is changed.
+     */
+    public static void encodeBase64(final Alphabet alphabet, final ByteBuffer source, final ByteBuffer destination) {
+        final int length = source.remaining();
+        final int encodedLength = base64Length(length);
+        if (destination.remaining() < encodedLength) {
+            throw new BufferOverflowException();
+        }
+
+        final int symbol62 = alphabet.symbol62;
+        final int symbol63 = alphabet.symbol63;
+        final int from = source.position();
+        final int to = destination.position();
+        for (int i = 0; i < length; i += 6) {
+            final int tail = Math.min(6, length - i);
+            long block = 0;
+            for (int k = 0; k < 6; ++k) {
+                block = (block << Byte.SIZE) | (k < tail ? source.get(from + i + k) & 0xFF : 0);
+            }
+            final long symbols = base64Symbols(block, symbol62, symbol63);
+            final int d = to + i / 6 * 8;
+            for (int k = 0, symbolCount = symbolCount(tail); k < base64Length(tail); ++k) {
+                destination.put(d + k, (byte) (k < symbolCount ? lane(symbols, k) : PADDING));
+            }
+        }
+        advance(source, length);
+        advance(destination, encodedLength);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the input is not valid Base64 in the alphabet.
+     */
+    public static int decodeBase64(
+            final Alphabet alphabet,
+            final char[] source,
+            final int sourceOffset,
+            final int length,
+            final byte[] destination,
+            final int destinationOffset
+    ) {
+        ArrayKernels.checkRange(source.length, sourceOffset, length);
+        final int unpadded = unpaddedLength(
+                length,
+                length < 1 ? 0 : source[sourceOffset + length - 1],
+                length < 2 ? 0 : source[sourceOffset + length - 2]
+        );
+        final int decodedLength = decodedBase64Length(unpadded);
+        ArrayKernels.checkRange(destination.length, destinationOffset, decodedLength);
+
+        final int symbol62 = alphabet.symbol62;
+        final int symbol63 = alphabet.symbol63;
+        final int blocks = unpadded / 8;
+        long invalid = 0;
+        for (int block = 0; block < blocks; ++block) {
+            final int s = sourceOffset + 8 * block;
+            final int d = destinationOffset + 6 * block;
+            long symbols = 0;
+            int wide = 0;
+            for (int k = 0; k < 8; ++k) {
+                final char c = source[s + k];
+                symbols = (symbols << Byte.SIZE) | (c & 0xFF);
+                wide |= c;
+            }
+            final long decoded = base64Block(symbols, symbol62, symbol63) | -(wide >>> 8);
+            invalid |= decoded;
+            for (int k = 0; k < 6; ++k) {
+                destination[d + k] = (byte) (decoded >>> (40 - 8 * k));
+            }
+        }
+
+        final int tail = unpadded - 8 * blocks;
+        if (tail > 0) {
+            final int s = sourceOffset + 8 * blocks;
+            final int d = destinationOffset + 6 * blocks;
+            long symbols = 0;
+            int wide = 0;
+            for (int k = 0; k < 8; ++k) {
+                final char c = k < tail ? source[s + k] : 'A';
+                symbols = (symbols << Byte.SIZE) | (c & 0xFF);
+                wide |= c;
+            }
+            final long decoded = base64Block(symbols, symbol62, symbol63) | -(wide >>> 8);
+            invalid |= decoded;
+            for (int k = 0; k < decodedBase64Length(tail); ++k) {
+                destination[d + k] = (byte) (decoded >>> (40 - 8 * k));
+            }
+        }
+        return checkDecoded(invalid, destination, destinationOffset, decodedLength);
+    }
+
+    /**
+     * Decode Base64 from ASCII bytes.
+     *
+     * @throws IllegalArgumentException if the input is not valid Base64 in the alphabet.
+     */
+    public static int decodeBase64(
+            final Alphabet alphabet,
+            final byte[] source,
+            final int sourceOffset,
+            final int length,
+            final byte[] destination,
+            final int destinationOffset
+    ) {
+        ArrayKernels.checkRange(source.length, sourceOffset, length);
+        final int unpadded = unpaddedLength(
+                length,
+                length < 1 ? 0 : source[sourceOffset + length - 1],
+                length < 2 ? 0 : source[sourceOffset + length - 2]
+        );
+        final int decodedLength = decodedBase64Length(unpadded);
+        ArrayKernels.checkRange(destination.length, destinationOffset, decodedLength);
+
+        // Big-endian views read and write a block's symbols and bytes with a few wide accesses rather than one each.
+        final ByteBuffer sourceWords = ByteBuffer.wrap(source);
+        final ByteBuffer destinationWords = ByteBuffer.wrap(destination);
+        final int symbol62 = alphabet.symbol62;
+        final int symbol63 = alphabet.symbol63;
+        final int blocks = unpadded / 8;
+        long invalid = 0;
+        for (int block = 0; block < blocks; ++block) {
+            final int d = destinationOffset + 6 * block;
+            final long decoded = base64Block(sourceWords.getLong(sourceOffset + 8 * block), symbol62, symbol63);
+            invalid |= decoded;
+            destinationWords.putInt(d, (int) (decoded >>> 16));
+            destinationWords.putShort(d + 4, (short) decoded);
+        }
+
+        final int tail = unpadded - 8 * blocks;
+        if (tail > 0) {
+            final int s = sourceOffset + 8 * blocks;
+            final int d = destinationOffset + 6 * blocks;
+            long symbols = 0;
+            for (int k = 0; k < 8; ++k) {
+                symbols = (symbols << Byte.SIZE) | (k < tail ? source[s + k] & 0xFF : 'A');
+            }
+            final long decoded = base64Block(symbols, symbol62, symbol63);
+            invalid |= decoded;
+            for (int k = 0; k < decodedBase64Length(tail); ++k) {
+                destination[d + k] = (byte) (decoded >>> (40 - 8 * k));
+            }
+        }
+        return checkDecoded(invalid, destination, destinationOffset, decodedLength);
+    }
+
+    /**
+     * Decode the remaining ASCII Base64 bytes of a buffer.
+     *
+     * @throws IllegalArgumentException if the input is not valid Base64 in the alphabet.
+     * @throws BufferOverflowException  if the destination has too little space remaining; neither buffer is changed.
+     */
+    public static void decodeBase64(final Alphabet alphabet, final ByteBuffer source, final ByteBuffer destination) {
+        final int length = source.remaining();
+        final int from = source.position();
+        final int unpadded = unpaddedLength(
+                length,
+                length < 1 ? 0 : source.get(from + length - 1),
+                length < 2 ? 0 : source.get(from + length - 2)
+        );
+        final int decodedLength = decodedBase64Length(unpadded);
+        if (destination.remaining() < decodedLength) {
+            throw new BufferOverflowException();
+        }
+
+        final int symbol62 = alphabet.symbol62;
+        final int symbol63 = alphabet.symbol63;
+        final int to = destination.position();
+        long invalid = 0;
+        for (int i = 0; i < unpadded; i += 8) {
+            final int tail = Math.min(8, unpadded - i);
+            long symbols = 0;
+            for (int k = 0; k < 8; ++k) {
+                symbols = (symbols << Byte.SIZE) | (k < tail ? source.get(from + i + k) & 0xFF : 'A');
+            }
+            final long decoded = base64Block(symbols, symbol62, symbol63);
+            invalid |= decoded;
+            final int d = to + i / 8 * 6;
+            for (int k = 0; k < decodedBase64Length(tail); ++k) {
+                destination.put(d + k, (byte) (decoded >>> (40 - 8 * k)));
+            }
+        }
+        checkDecoded(invalid, destination, to, decodedLength);
+        advance(source, length);
+        advance(destination, decodedLength);
+    }
+
+    /**
+     * The hex digit for a nibble: {@code '0'} plus the nibble, moved up to {@code 'a'} for nibbles of ten or more.
+     */
+    private static char hexSymbol(final int nibble) {
+        return (char) (nibble + 'a' - 10 + (((nibble - 10) >> 31) & ('0' - 'a' + 10)));
+    }
+
+    /**
+     * The value of a hex digit in either case, or a negative number if it is not one.
+     */
+    private static int hexValue(final int c) {
+        final int digit = c ^ '0';
+        final int digitMask = (digit - 10) >> 31;
+        final int letter = (c & ~0x20) - 'A' + 10;
+        final int letterMask = ((letter - 16) >> 31) & ~((letter - 10) >> 31);
+        return (digitMask & digit) | (letterMask & letter) | ~(digitMask | letterMask);
+    }
+
+    /**
+     * The Base64 symbols for the eight sextets of a block of six bytes, in the eight byte lanes of a long, first
+     * symbol highest. The sextets are spread out into their lanes by halving the block twice, and then, starting from
+     * {@code 'A'}, each range of the alphabet past a sextet's own adds the distance from the previous range to the
+     * next. Every lane ends up between zero and {@code 0x7F}, so the lanes never carry into each other however the
+     * sum is ordered.
+     */
+    private static long base64Symbols(final long block, final int symbol62, final int symbol63) {
+        final long quanta = ((block << 8) & 0x00FF_FFFF_0000_0000L) | (block & 0x0000_0000_00FF_FFFFL);
+        final long halves = ((quanta << 4) & 0x0FFF_0000_0FFF_0000L) | (quanta & 0x0000_0FFF_0000_0FFFL);
+        final long sextets = ((halves << 2) & 0x3F00_3F00_3F00_3F00L) | (halves & 0x003F_003F_003F_003FL);
+        return sextets
+                + 'A' * LANES
+                + ('a' - 26 - 'A') * atLeast(sextets, 26)
+                + ('0' - 52 - ('a' - 26)) * atLeast(sextets, 52)
+                + (symbol62 - 62 - ('0' - 52)) * atLeast(sextets, 62)
+                + (symbol63 - 63 - (symbol62 - 62)) * atLeast(sextets, 63);
+    }
+
+    /**
+     * Decode eight symbols, one in each byte lane of a long, first symbol highest, into a block of six bytes in the
+     * low 48 bits, or a negative number if any is not in the alphabet. Each range of the alphabet is tested in every
+     * lane at once, and moves the lanes within it down to their values, which are then gathered by halving the number
+     * of lanes twice.
+     */
+    private static long base64Block(final long symbols, final int symbol62, final int symbol63) {
+        final long ascii = symbols & (0x7F * LANES);
+        final long upper = within(ascii, 'A', 'Z');
+        final long lower = within(ascii, 'a', 'z');
+        final long digit = within(ascii, '0', '9');
+        final long is62 = equal(ascii, symbol62);
+        final long is63 = equal(ascii, symbol63);
+        final long values = ascii
+                - 'A' * upper
+                + (26 - 'a') * lower
+                + (52 - '0') * digit
+                + (62 - symbol62) * is62
+                + (63 - symbol63) * is63;
+
+        final long halves = ((values & 0x3F00_3F00_3F00_3F00L) >>> 2) | (values & 0x003F_003F_003F_003FL);
+        final long quanta = ((halves & 0x0FFF_0000_0FFF_0000L) >>> 4) | (halves & 0x0000_0FFF_0000_0FFFL);
+        final long block = ((quanta & 0x00FF_FFFF_0000_0000L) >>> 8) | (quanta & 0x0000_0000_00FF_FFFFL);
+
+        final long invalid = ((upper | lower | digit | is62 | is63) ^ LANES) | (symbols & (0x80 * LANES));
+        return block | ((invalid | -invalid) >> 63);
+    }
+
+    /**
+     * One in each byte lane holding at least the threshold, and zero in the others. Lanes must hold at most
+     * {@code 0x7F}, and the threshold must be between one and {@code 0x80}.
+     */
+    private static long atLeast(final long lanes, final int threshold) {
+        return ((lanes + (0x80 - threshold) * LANES) >>> 7) & LANES;
+    }
+
+    /**
+     * One in each byte lane holding a value from the minimum to the maximum, and zero in the others. The top bit of a
+     * lane is set by the first sum if the lane holds at least the minimum, and by the second if it holds more than the
+     * maximum. Lanes must hold at most {@code 0x7F}, and the bounds must be between one and {@code 0x7F}.
+     */
+    private static long within(final long lanes, final int minimum, final int maximum) {
+        return (((lanes + (0x80 - minimum) * LANES) & ~(lanes + (0x7F - maximum) * LANES)) >>> 7) & LANES;
+    }
+
+    /**
+     * One in each byte lane holding the value, and zero in the others; a lane that differs from it sets its top bit
+     * when {@code 0x7F} is added. Lanes and the value must be at most {@code 0x7F}.
+     */
+    private static long equal(final long lanes, final int value) {
+        return (~((lanes ^ value * LANES) + 0x7F * LANES) >>> 7) & LANES;
+    }
+
+    /**
+     * The {@code k}th byte lane of a long, counting from the highest.
+     */
+    private static int lane(final long lanes, final int k) {
+        return (int) (lanes >>> (56 - Byte.SIZE * k)) & 0xFF;
+    }
+
+    private static long sixBytes(
+            final byte b0,
+            final byte b1,
+            final byte b2,
+            final byte b3,
+            final byte b4,
+            final byte b5
+    ) {
+        return ((long) (b0 & 0xFF) << 40)
+                | ((long) (b1 & 0xFF) << 32)
+                | ((long) (b2 & 0xFF) << 24)
+                | ((b3 & 0xFF) << 16)
+                | ((b4 & 0xFF) << 8)
+                | (b5 & 0xFF);
+    }
+
+    /**
+     * The number of Base64 symbols, not counting padding, that encode {@code length} bytes.
+     */
+    private static int symbolCount(final int length) {
+        return (length * 8 + 5) / 6;
+    }
+
+    /**
+     * The length of Base64 input without its padding. Padding only depends on the length of the encoded data, so
+     * branching on it reveals nothing more than the length does.
+     */
+    private static int unpaddedLength(final int length, final int last, final int secondLast) {
+        int unpadded = length;
+        if (length % 4 == 0 && last == PADDING) {
+            --unpadded;
+            if (secondLast == PADDING) {
+                --unpadded;
+            }
+        }
+        if (unpadded % 4 == 1) {
+            throw new IllegalArgumentException("invalid Base64 length");
+        }
+        return unpadded;
+    }
+
+    private static int decodedBase64Length(final int unpaddedLength) {
+        return unpaddedLength / 4 * 3 + Math.max(0, unpaddedLength % 4 - 1);
+    }
+
+    private static void checkHexLength(final int length) {
+        if (length % 2 != 0) {
+            throw new IllegalArgumentException("hex input must have an even length");
+        }
+    }
+
+    private static int checkDecoded(
+            final long invalid,
+            final byte[] destination,
+            final int destinationOffset,
+            final int length
+    ) {
+        if (invalid < 0) {
+            Arrays.fill(destination, destinationOffset, destinationOffset + length, (byte) 0);
+            throw new IllegalArgumentException("invalid input");
+        }
+        return length;
+    }
+
+    private static void checkDecoded(
+            final long invalid,
+            final ByteBuffer destination,
+            final int destinationOffset,
+            final int length
+    ) {
+        if (invalid < 0) {
+            for (int i = 0; i < length; ++i) {
+                destination.put(destinationOffset + i, (byte) 0);
+            }
+            throw new IllegalArgumentException("invalid input");
+        }
+    }
+
+    private static void advance(final ByteBuffer buffer, final int count) {
+        ((Buffer) buffer).position(buffer.position() + count);
+    }
+
+    private static void checkLength(final int length, final int maximum) {
+        if (length < 0 || maximum < length) {
+            throw new IllegalArgumentException("length " + length + " is out of range");
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package com.qudini.security.primitives;
 
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Objects;
 
-import static com.qudini.security.primitives.Shredding.shred;
 import static java.lang.Math.max;
-import static java.util.Arrays.asList;
 
 @CheckReturnValue
 @ParametersAreNonnullByDefault
 public final class ConstantTimeOperations {
 
+    // Chunks are pooled, so this must not exceed the shared pool's largest size class.
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+    // Where utf8Step packs the byte count and the invalid flag above the encoded bytes.
+    private static final int UTF8_COUNT_SHIFT = 32;
+    private static final int UTF8_INVALID_SHIFT = 40;
+
+    // Read in place of bytes that do not exist; never written.
+    private static final byte[] SPARE_BYTE = new byte[1];
+
     private ConstantTimeOperations() {
         throw new UnsupportedOperationException();
     }
@@ -20,7 +35,8 @@ public final class ConstantTimeOperations {
      * NOP with some actual computations; create false data dependency with iterations argument and return value to
      * reduce likelihood of javac optimising it away.
      * <p>
-     * Suitable as a building block for other constant-time operations which can avoid timing attacks.
+     * Suitable as a building block for other constant-time operations which can avoid timing attacks. What an iteration
+     * costs varies with the CPU, JIT tier and clock speed; to pad to a wall-clock time, use {@link TimingPadding}.
      */
     public static byte nop(final long iterations) {
         if (iterations < 0) {
@@ -43,18 +59,36 @@ public final class ConstantTimeOperations {
      * {@code minElementChecks}. Suitable for avoiding timing attacks.
      */
     public static boolean equals(final char[] xs, final char[] ys, final int minElementChecks) {
-        return equals(
-                new NonCopyingCharArraySequencer(xs),
-                new NonCopyingCharArraySequencer(ys),
-                minElementChecks
-        );
+        return equalsChars(xs, 0, xs.length, ys, 0, ys.length, minElementChecks);
     }
 
     /**
-     * Checks whether two character arrays are equal; guaranteed to run in constant time with at least
+     * Checks whether a range of one character array equals a range of another, such as the used part of a buffer that
+     * grew past its contents, without copying either range out; guaranteed to run in constant time with at least
+     * minElementChecks.
+     *
+     * @throws IndexOutOfBoundsException if either range does not lie within its array.
+     * @see #equals(char[], char[], int)
+     */
+    public static boolean equals(
+            final char[] xs,
+            final int xsOffset,
+            final int xsLength,
+            final char[] ys,
+            final int ysOffset,
+            final int ysLength,
+            final int minElementChecks
+    ) {
+        ArrayKernels.checkRange(xs.length, xsOffset, xsLength);
+        ArrayKernels.checkRange(ys.length, ysOffset, ysLength);
+        return equalsChars(xs, xsOffset, xsLength, ys, ysOffset, ysLength, minElementChecks);
+    }
+
+    /**
+     * Checks whether two strings are equal; guaranteed to run in constant time with at least
      * {@code minElementChecks}. Suitable for avoiding timing attacks.
      */
-    public static boolean equals(final CharSequence xs, final CharSequence ys, final int minElementChecks) {
+    public static boolean equals(final String xs, final String ys, final int minElementChecks) {
         Objects.requireNonNull(xs);
         Objects.requireNonNull(ys);
 
@@ -70,58 +104,600 @@ public final class ConstantTimeOperations {
     }
 
     /**
-     * Do a case-sensitive equality check in constant time to avoid timing attacks, and shred the intermediate arrays
-     * used for normalising the case.
+     * Checks whether the remaining characters of two buffers are equal; guaranteed to run in constant time with at
+     * least {@code minElementChecks}. Buffers backed by accessible arrays are read straight from them, and positions
+     * are left unchanged.
+     */
+    public static boolean equals(final CharBuffer xs, final CharBuffer ys, final int minElementChecks) {
+        if (xs.hasArray() && ys.hasArray()) {
+            return equalsChars(
+                    xs.array(), xs.arrayOffset() + xs.position(), xs.remaining(),
+                    ys.array(), ys.arrayOffset() + ys.position(), ys.remaining(),
+                    minElementChecks
+            );
+        }
+        return equalsSequences(xs, ys, minElementChecks);
+    }
+
+    /**
+     * Checks whether two character sequences are equal; guaranteed to run in constant time with at least
+     * {@code minElementChecks}. Suitable for avoiding timing attacks.
+     * <p>
+     * Pairs of strings, and pairs of sequences over arrays, such as {@link NonCopyingCharArraySequencer}s,
+     * {@link SecureCharBuilder}s and array-backed {@link CharBuffer}s, are compared with loops specialised for them, so
+     * the comparison stays fast however many kinds of sequence the JVM has seen here. Only other pairs are read through
+     * {@link CharSequence#charAt(int)}.
+     */
+    public static boolean equals(final CharSequence xs, final CharSequence ys, final int minElementChecks) {
+        Objects.requireNonNull(xs);
+        Objects.requireNonNull(ys);
+
+        if (xs instanceof String && ys instanceof String) {
+            return equals((String) xs, (String) ys, minElementChecks);
+        }
+        final char[] xsArray = backingArray(xs);
+        final char[] ysArray = backingArray(ys);
+        if (xsArray != null && ysArray != null) {
+            return equalsChars(
+                    xsArray, backingOffset(xs), backingLength(xs),
+                    ysArray, backingOffset(ys), backingLength(ys),
+                    minElementChecks
+            );
+        }
+        return equalsSequences(xs, ys, minElementChecks);
+    }
+
+    /**
+     * Checks whether characters equal the UTF-8 bytes they would be encoded as, such as a stored token against one
+     * received off the wire, without decoding the bytes into a temporary array that then has to be shredded;
+     * guaranteed to run in constant time with at least {@code minElementChecks} character checks.
+     * <p>
+     * The characters are encoded as they are compared, with masks rather than branches, so nothing is allocated. Only
+     * the shortest, standard encoding matches: overlong forms, encoded surrogates and malformed bytes never do, and
+     * neither do characters with an unpaired surrogate. The time taken depends on the number of characters, not on
+     * their contents, although which bytes are read at each step does, much as in a table lookup.
+     * <p>
+     * Encoding every character without branches costs more than the JDK's decoder: a check is several times slower
+     * than decoding, comparing and shredding the copy, and is chosen for leaving no copy behind, not for speed.
+     */
+    public static boolean equalsUtf8(final CharSequence chars, final byte[] utf8, final int minElementChecks) {
+        return equalsUtf8(chars, utf8, null, 0, utf8.length, minElementChecks);
+    }
+
+    /**
+     * Checks whether characters equal the UTF-8 bytes in a range of an array.
+     *
+     * @throws IndexOutOfBoundsException if the range does not lie within the array.
+     * @see #equalsUtf8(CharSequence, byte[], int)
+     */
+    public static boolean equalsUtf8(
+            final CharSequence chars,
+            final byte[] utf8,
+            final int offset,
+            final int length,
+            final int minElementChecks
+    ) {
+        ArrayKernels.checkRange(utf8.length, offset, length);
+        return equalsUtf8(chars, utf8, null, offset, length, minElementChecks);
+    }
+
+    /**
+     * Checks whether characters equal the remaining UTF-8 bytes of a buffer, which is read in place and left with its
+     * position unchanged.
+     *
+     * @see #equalsUtf8(CharSequence, byte[], int)
+     */
+    public static boolean equalsUtf8(final CharSequence chars, final ByteBuffer utf8, final int minElementChecks) {
+        if (utf8.hasArray()) {
+            final int offset = utf8.arrayOffset() + utf8.position();
+            return equalsUtf8(chars, utf8.array(), null, offset, utf8.remaining(), minElementChecks);
+        }
+        return equalsUtf8(chars, null, utf8, utf8.position(), utf8.remaining(), minElementChecks);
+    }
+
+    /**
+     * Do a case-insensitive equality check in constant time to avoid timing attacks. Case is folded one character at a
+     * time as the arrays are compared, so no case-normalised copies are made.
+     *
+     * @see #caseInsensitiveEquals(CharSequence, CharSequence, int)
      */
     public static boolean caseInsensitiveEquals(final char[] xs, final char[] ys, final int minElementChecks) {
-        return caseInsensitiveEquals(
-                new NonCopyingCharArraySequencer(xs),
-                new NonCopyingCharArraySequencer(ys),
-                minElementChecks
-        );
+        Objects.requireNonNull(xs);
+        Objects.requireNonNull(ys);
+
+        int result = 0;
+        final int xsLength = xs.length;
+        final int ysLength = ys.length;
+        for (int n = max(xsLength, max(ysLength, max(minElementChecks, 1))) - 1; 0 <= n; --n) {
+            final int x = (n < xsLength) ? CaseFolding.fold(xs[n]) : -1;
+            final int y = (n < ysLength) ? CaseFolding.fold(ys[n]) : -1;
+            result |= (x ^ y);
+        }
+        return result == 0;
     }
 
     /**
-     * Checks whether two character arrays are equal; guaranteed to run in constant time with at least minElementChecks.
+     * Checks whether two byte arrays are equal; guaranteed to run in constant time with at least minElementChecks.
      * Suitable for avoiding timing attacks.
+     * <p>
+     * The arrays are compared a word of eight bytes at a time, so the number of checks is rounded up to a whole number
+     * of words.
      */
     public static boolean equals(final byte[] xs, final byte[] ys, final int minElementChecks) {
+        return equals(xs, 0, xs.length, ys, 0, ys.length, minElementChecks);
+    }
+
+    /**
+     * Checks whether a range of one byte array equals a range of another, such as the MAC at the end of a received
+     * packet, without copying either range out; guaranteed to run in constant time with at least minElementChecks.
+     *
+     * @throws IndexOutOfBoundsException if either range does not lie within its array.
+     * @see #equals(byte[], byte[], int)
+     */
+    public static boolean equals(
+            final byte[] xs,
+            final int xsOffset,
+            final int xsLength,
+            final byte[] ys,
+            final int ysOffset,
+            final int ysLength,
+            final int minElementChecks
+    ) {
+        ArrayKernels.checkRange(xs.length, xsOffset, xsLength);
+        ArrayKernels.checkRange(ys.length, ysOffset, ysLength);
+
+        final int checks = max(xsLength, max(ysLength, max(minElementChecks, 1)));
+        final long difference = ArrayKernels.difference(xs, xsOffset, xsLength, ys, ysOffset, ysLength, checks);
+        return ((xsLength ^ ysLength) | difference) == 0;
+    }
+
+    /**
+     * Checks whether the remaining bytes of two buffers are equal; guaranteed to run in constant time with at least
+     * minElementChecks. Heap and direct buffers are both read in place, and their positions are left unchanged.
+     *
+     * @see #equals(byte[], byte[], int)
+     */
+    public static boolean equals(final ByteBuffer xs, final ByteBuffer ys, final int minElementChecks) {
+        return equals(
+                inNativeOrder(xs), xs.position(), xs.remaining(),
+                inNativeOrder(ys), ys.position(), ys.remaining(),
+                minElementChecks
+        );
+    }
+
+    /**
+     * The index of the entry in a haystack equal to the candidate, or {@code -1} if none is; for checking a presented
+     * API key or recovery code against every one active for an account. Every entry is compared in full and the scan
+     * never stops early, so the time taken depends on the number and lengths of the entries but not on which one
+     * matched, or whether any did. If several entries match, the last is returned.
+     *
+     * @see #indexOf(byte[], byte[], int)
+     */
+    public static int indexOf(final byte[] candidate, final byte[][] haystack) {
+        int index = -1;
+        for (int i = 0; i < haystack.length; ++i) {
+            final byte[] entry = haystack[i];
+            final long difference = entryDifference(candidate, entry, 0, entry.length);
+            index = ConstantTimePrimitives.select(ConstantTimePrimitives.isZeroMask(difference), i, index);
+        }
+        return index;
+    }
+
+    /**
+     * The index of the entry equal to the candidate in a haystack packed into one array of equal-length entries, or
+     * {@code -1} if none is. Packing keeps the scan in one contiguous array, which is faster than following a pointer
+     * to each entry, and is how a fixed-size key table can be stored. Like {@link #indexOf(byte[], byte[][])}, every
+     * entry is compared in full, and if several match, the last is returned.
+     *
+     * @throws IllegalArgumentException if the entry length is not positive, or does not divide the packed length.
+     */
+    public static int indexOf(final byte[] candidate, final byte[] packedHaystack, final int entryLength) {
+        if (entryLength < 1 || packedHaystack.length % entryLength != 0) {
+            throw new IllegalArgumentException(
+                    "entry length " + entryLength + " does not divide the haystack length " + packedHaystack.length
+            );
+        }
+
+        int index = -1;
+        for (int i = 0, entries = packedHaystack.length / entryLength; i < entries; ++i) {
+            final long difference = entryDifference(candidate, packedHaystack, i * entryLength, entryLength);
+            index = ConstantTimePrimitives.select(ConstantTimePrimitives.isZeroMask(difference), i, index);
+        }
+        return index;
+    }
+
+    /**
+     * Non-zero if a haystack entry differs from the candidate. Only the bytes the two have in common are compared, in
+     * place and a word at a time, which is enough since entries of a different length never match; the loops depend on
+     * the lengths alone. Unlike {@link #difference}, no padding is assembled, which keeps the per-entry cost of a scan
+     * low.
+     */
+    private static long entryDifference(
+            final byte[] candidate,
+            final byte[] haystack,
+            final int offset,
+            final int entryLength
+    ) {
+        final int candidateLength = candidate.length;
+        return (candidateLength ^ entryLength)
+                | ArrayKernels.difference(candidate, 0, haystack, offset, Math.min(candidateLength, entryLength));
+    }
+
+    private static boolean equals(
+            final ByteBuffer xs,
+            final int xsOffset,
+            final int xsLength,
+            final ByteBuffer ys,
+            final int ysOffset,
+            final int ysLength,
+            final int minElementChecks
+    ) {
+        final int checks = max(xsLength, max(ysLength, max(minElementChecks, 1)));
+        return ((xsLength ^ ysLength) | difference(xs, xsOffset, xsLength, ys, ysOffset, ysLength, checks)) == 0;
+    }
+
+    /**
+     * ORs together the XOR of every word of two ranges over the first {@code checks} bytes, rounded up to a whole word,
+     * without exiting early. The result is only meaningful if the ranges are the same length.
+     */
+    static long difference(
+            final ByteBuffer xs,
+            final int xsOffset,
+            final int xsLength,
+            final ByteBuffer ys,
+            final int ysOffset,
+            final int ysLength,
+            final int checks
+    ) {
+        long result = 0;
+        for (int word = 0, words = (int) ((checks + (Long.BYTES - 1L)) / Long.BYTES); word < words; ++word) {
+            final int position = word * Long.BYTES;
+            result |= word(xs, xsOffset, xsLength, position) ^ word(ys, ysOffset, ysLength, position);
+        }
+        return result;
+    }
+
+    /**
+     * The eight bytes from {@code position} of the range, with any past its end taken as {@code -1}. Only whole words
+     * are read in the buffer's order, so words are only comparable between ranges of the same length; callers must
+     * compare the lengths separately.
+     */
+    private static long word(final ByteBuffer buffer, final int offset, final int length, final int position) {
+        if (position <= length - Long.BYTES) {
+            return buffer.getLong(offset + position);
+        }
+
+        long word = 0;
+        for (int i = 0; i < Long.BYTES; ++i) {
+            final int n = position + i;
+            word = (word << Byte.SIZE) | ((n < length ? buffer.get(offset + n) : -1) & 0xFF);
+        }
+        return word;
+    }
+
+    /**
+     * Checks whether two streams hold the same bytes, reading both to the end in fixed-size chunks and comparing every
+     * chunk in full; guaranteed to run in constant time for the streams' lengths, with at least
+     * {@code minByteChecks} byte checks. Suitable for secrets too large to hold in memory, such as exported key
+     * bundles: only two chunks are held at once, and they are shredded afterwards. The streams are not closed.
+     */
+    public static boolean equals(
+            final InputStream xs,
+            final InputStream ys,
+            final long minByteChecks
+    ) throws IOException {
         Objects.requireNonNull(xs);
         Objects.requireNonNull(ys);
+        return equals(chunk -> fill(xs, chunk), chunk -> fill(ys, chunk), minByteChecks);
+    }
+
+    /**
+     * Checks whether two channels hold the same bytes, as {@link #equals(InputStream, InputStream, long)} does for
+     * streams. The channels must be in blocking mode, and are not closed.
+     */
+    public static boolean equals(
+            final ReadableByteChannel xs,
+            final ReadableByteChannel ys,
+            final long minByteChecks
+    ) throws IOException {
+        Objects.requireNonNull(xs);
+        Objects.requireNonNull(ys);
+        return equals(chunk -> fill(xs, chunk), chunk -> fill(ys, chunk), minByteChecks);
+    }
 
+    private static boolean equals(
+            final ChunkReader xs,
+            final ChunkReader ys,
+            final long minByteChecks
+    ) throws IOException {
+        final SecretBufferPool pool = SecretBufferPool.shared();
+        final byte[] xsChunk = pool.acquireBytes(STREAM_CHUNK_SIZE);
+        final byte[] ysChunk = pool.acquireBytes(STREAM_CHUNK_SIZE);
+        try {
+            // Both streams are read to the end even once one is exhausted, and every chunk is compared in full, so the
+            // time taken depends on the lengths but not the contents. A short final chunk only ever comes at the end of
+            // a stream, so chunks at the same index always start at the same offset.
+            long result = 0;
+            long xsTotal = 0;
+            long ysTotal = 0;
+            long checked = 0;
+            int xsCount;
+            int ysCount;
+            do {
+                xsCount = xs.read(xsChunk);
+                ysCount = ys.read(ysChunk);
+                xsTotal += xsCount;
+                ysTotal += ysCount;
+                result |= ArrayKernels.difference(xsChunk, 0, xsCount, ysChunk, 0, ysCount, STREAM_CHUNK_SIZE);
+                checked += STREAM_CHUNK_SIZE;
+            } while (xsCount == STREAM_CHUNK_SIZE || ysCount == STREAM_CHUNK_SIZE || checked < minByteChecks);
+
+            return ((xsTotal ^ ysTotal) | result) == 0;
+        } finally {
+            pool.release(xsChunk);
+            pool.release(ysChunk);
+        }
+    }
+
+    private static boolean equalsChars(
+            final char[] xs,
+            final int xsOffset,
+            final int xsLength,
+            final char[] ys,
+            final int ysOffset,
+            final int ysLength,
+            final int minElementChecks
+    ) {
         int result = 0;
-        final int xsLength = xs.length;
-        final int ysLength = ys.length;
         for (int n = max(xsLength, max(ysLength, max(minElementChecks, 1))) - 1; 0 <= n; --n) {
-            final short x = (n < xsLength) ? xs[n] : -1;
-            final short y = (n < ysLength) ? ys[n] : -1;
+            final int x = (n < xsLength) ? xs[xsOffset + n] : -1;
+            final int y = (n < ysLength) ? ys[ysOffset + n] : -1;
             result |= (x ^ y);
         }
+        return result == 0;
+    }
 
+    private static boolean equalsSequences(final CharSequence xs, final CharSequence ys, final int minElementChecks) {
+        int result = 0;
+        final int xsLength = xs.length();
+        final int ysLength = ys.length();
+        for (int n = max(xsLength, max(ysLength, max(minElementChecks, 1))) - 1; 0 <= n; --n) {
+            final int x = (n < xsLength) ? xs.charAt(n) : -1;
+            final int y = (n < ysLength) ? ys.charAt(n) : -1;
+            result |= (x ^ y);
+        }
         return result == 0;
     }
 
     /**
-     * Do a case-sensitive equality check in constant time to avoid timing attacks, and shred the intermediate arrays
-     * used for normalising the case.
+     * The array a sequence reads its characters from, if it has one that can be read directly, or null. Which path a
+     * comparison takes depends on the sequences' types, never their contents.
+     */
+    @Nullable
+    private static char[] backingArray(final CharSequence sequence) {
+        if (sequence instanceof NonCopyingCharArraySequencer) {
+            return ((NonCopyingCharArraySequencer) sequence).array();
+        }
+        if (sequence instanceof SecureCharBuilder) {
+            return ((SecureCharBuilder) sequence).array();
+        }
+        if (sequence instanceof CharBuffer && ((CharBuffer) sequence).hasArray()) {
+            return ((CharBuffer) sequence).array();
+        }
+        return null;
+    }
+
+    /**
+     * Where a sequence with a {@link #backingArray} starts in it.
+     */
+    private static int backingOffset(final CharSequence sequence) {
+        if (sequence instanceof NonCopyingCharArraySequencer) {
+            return ((NonCopyingCharArraySequencer) sequence).offset();
+        }
+        if (sequence instanceof SecureCharBuilder) {
+            return 0;
+        }
+        final CharBuffer buffer = (CharBuffer) sequence;
+        return buffer.arrayOffset() + buffer.position();
+    }
+
+    /**
+     * The length of a sequence with a {@link #backingArray}, found without an interface call, which would be
+     * megamorphic here.
+     */
+    private static int backingLength(final CharSequence sequence) {
+        if (sequence instanceof NonCopyingCharArraySequencer) {
+            return ((NonCopyingCharArraySequencer) sequence).length();
+        }
+        if (sequence instanceof SecureCharBuilder) {
+            return ((SecureCharBuilder) sequence).length();
+        }
+        return ((CharBuffer) sequence).remaining();
+    }
+
+    /**
+     * Encodes each character, or surrogate pair, into up to four bytes and compares them with the bytes at the current
+     * position, then advances the position by however many bytes the encoding took. Every step reads four bytes and
+     * does the same work whatever the character. The bytes come from the array if there is one, or else from the
+     * buffer, which is only read in place.
+     */
+    private static boolean equalsUtf8(
+            final CharSequence chars,
+            @Nullable final byte[] array,
+            @Nullable final ByteBuffer buffer,
+            final int offset,
+            final int length,
+            final int minElementChecks
+    ) {
+        Objects.requireNonNull(chars);
+
+        // Reads past the end are redirected to the last byte, and caught by checking for overruns instead; with no
+        // bytes at all, they go to a spare array.
+        final byte[] bytes = length == 0 ? SPARE_BYTE : array;
+        final int start = length == 0 ? 0 : offset;
+        final int last = max(length - 1, 0);
+        // With at least four bytes, each step reads them as one word instead.
+        final boolean words = Integer.BYTES <= length;
+        final int wordEnd = length - Integer.BYTES;
+        final boolean bigEndian = buffer != null && buffer.order() == ByteOrder.BIG_ENDIAN;
+
+        // Strings and array-backed sequences are read directly, as in equals(CharSequence, CharSequence, int), rather
+        // than through CharSequence.charAt, which is megamorphic once more than one kind of sequence is compared.
+        final String string = chars instanceof String ? (String) chars : null;
+        final char[] charArray = backingArray(chars);
+        final int charsOffset = charArray != null ? backingOffset(chars) : 0;
+        final int charsLength = charArray != null ? backingLength(chars) : chars.length();
+        int result = 0;
+        int position = 0;
+        int previous = 0;
+        int c = 0 < charsLength ? charAt(chars, string, charArray, charsOffset, 0) : 0;
+        for (int n = 0, steps = max(charsLength, max(minElementChecks, 1)); n < steps; ++n) {
+            final int next = n + 1 < charsLength ? charAt(chars, string, charArray, charsOffset, n + 1) : 0;
+            final long step = utf8Step(previous, c, next, ConstantTimePrimitives.lessThanMask(n, charsLength));
+            final int count = (int) (step >>> UTF8_COUNT_SHIFT) & 0x7;
+            result |= (int) (step >>> UTF8_INVALID_SHIFT);
+
+            // The position never passes the length, so these masks can be taken from the sign without overflowing.
+            int actual = 0;
+            if (words) {
+                // One read of the four bytes from the position, or of the last four if fewer remain, shifting out any
+                // before the position.
+                final int from = ConstantTimePrimitives.select((wordEnd - position) >> 31, wordEnd, position);
+                final int word = array != null
+                        ? ArrayKernels.littleEndianInt(array, start + from)
+                        : bigEndian ? Integer.reverseBytes(buffer.getInt(start + from)) : buffer.getInt(start + from);
+                actual = (int) ((word & 0xFFFF_FFFFL) >>> (Byte.SIZE * (position - from)));
+            } else {
+                for (int i = 0; i < 4; ++i) {
+                    final int index = position + i;
+                    final int at = start + ConstantTimePrimitives.select((index - length) >> 31, index, last);
+                    actual |= ((bytes != null ? bytes[at] : buffer.get(at)) & 0xFF) << (Byte.SIZE * i);
+                }
+            }
+            final int used = (int) ((1L << (Byte.SIZE * count)) - 1);
+            result |= used & (actual ^ (int) step);
+
+            // Running out of bytes fails the comparison, after which the position stays at the end.
+            final int overrun = (length - (position + count)) >> 31;
+            result |= overrun;
+            position = ConstantTimePrimitives.select(overrun, length, position + count);
+
+            previous = c;
+            c = next;
+        }
+        return (result | (position ^ length)) == 0;
+    }
+
+    /**
+     * The character at {@code index} of a sequence, from the string or the {@link #backingArray} resolved for it if
+     * there is one.
+     */
+    private static char charAt(
+            final CharSequence chars,
+            @Nullable final String string,
+            @Nullable final char[] array,
+            final int offset,
+            final int index
+    ) {
+        if (array != null) {
+            return array[offset + index];
+        }
+        return string != null ? string.charAt(index) : chars.charAt(index);
+    }
+
+    /**
+     * The UTF-8 encoding of the character {@code c}, between {@code previous} and {@code next}, computed with masks:
+     * the bytes in the low 32 bits, first byte lowest, their count from {@link #UTF8_COUNT_SHIFT}, and a flag from
+     * {@link #UTF8_INVALID_SHIFT} set if {@code c} is an unpaired surrogate. A high surrogate that starts a pair
+     * encodes the whole pair, and the low surrogate that ends it encodes to nothing. Nothing is encoded unless
+     * {@code present}.
+     */
+    private static long utf8Step(final int previous, final int c, final int next, final int present) {
+        // Surrogates share their top six bits: 0xD800 >>> 10 for high ones and 0xDC00 >>> 10 for low ones.
+        final int high = ConstantTimePrimitives.equalMask(c >>> 10, 0x36);
+        final int low = ConstantTimePrimitives.equalMask(c >>> 10, 0x37);
+        final int pairStart = high & ConstantTimePrimitives.equalMask(next >>> 10, 0x37);
+        final int pairEnd = low & ConstantTimePrimitives.equalMask(previous >>> 10, 0x36);
+        final int invalid = present & ((high & ~pairStart) | (low & ~pairEnd)) & 1;
+
+        final int one = ConstantTimePrimitives.isZeroMask(c >>> 7);
+        final int two = ~one & ConstantTimePrimitives.isZeroMask(c >>> 11);
+        final int three = ~one & ~two & ~high & ~low;
+        final int codePoint = 0x10000 + ((c - 0xD800) << 10) + (next - 0xDC00);
+
+        int encoded = one & c;
+        encoded |= two & (0xC0 | (c >>> 6) | (0x80 | (c & 0x3F)) << 8);
+        encoded |= three & (0xE0 | (c >>> 12) | (0x80 | ((c >>> 6) & 0x3F)) << 8 | (0x80 | (c & 0x3F)) << 16);
+        encoded |= pairStart & (0xF0 | (codePoint >>> 18)
+                | (0x80 | ((codePoint >>> 12) & 0x3F)) << 8
+                | (0x80 | ((codePoint >>> 6) & 0x3F)) << 16
+                | (0x80 | (codePoint & 0x3F)) << 24);
+        final int count = present & ((one & 1) | (two & 2) | (three & 3) | (pairStart & 4));
+
+        return (encoded & 0xFFFFFFFFL) | (long) count << UTF8_COUNT_SHIFT | (long) invalid << UTF8_INVALID_SHIFT;
+    }
+
+    /**
+     * Reads into the whole of a chunk unless the source ends first, returning the number of bytes read.
+     */
+    private interface ChunkReader {
+        int read(byte[] chunk) throws IOException;
+    }
+
+    private static int fill(final InputStream stream, final byte[] chunk) throws IOException {
+        int count = 0;
+        while (count < chunk.length) {
+            final int read = stream.read(chunk, count, chunk.length - count);
+            if (read < 0) {
+                break;
+            }
+            count += read;
+        }
+        return count;
+    }
+
+    private static int fill(final ReadableByteChannel channel, final byte[] chunk) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        while (buffer.hasRemaining() && 0 <= channel.read(buffer)) {
+            // Keep reading until the chunk is full or the channel ends.
+        }
+        return buffer.position();
+    }
+
+    /**
+     * A buffer to read words from in native order, which saves a byte swap per word. Only absolute reads are made, so
+     * a buffer already in native order is read as it is.
+     */
+    private static ByteBuffer inNativeOrder(final ByteBuffer buffer) {
+        return buffer.order() == ByteOrder.nativeOrder() ? buffer : buffer.duplicate().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Do a case-insensitive equality check in constant time to avoid timing attacks, with at least
+     * {@code minElementChecks} checks. Characters are equal when {@link String#equalsIgnoreCase(String)} would consider
+     * them equal one UTF-16 unit at a time; surrogates are compared exactly.
+     * <p>
+     * Case is folded as the sequences are compared, through a precomputed table rather than copies of the inputs, so
+     * nothing is allocated and nothing is left to shred. Table lookups are indexed by the characters, which can show
+     * in cache timing much as {@link Character#toLowerCase(char)}'s own lookups did; the table is small enough to
+     * stay cached between calls.
      */
     public static boolean caseInsensitiveEquals(
             final CharSequence xs,
             final CharSequence ys,
             final int minElementChecks
     ) {
-        final char[] lowerXs = new char[xs.length()];
-        final char[] lowerYs = new char[ys.length()];
-
-        asList(lowerXs, lowerYs).forEach(chars -> {
-            for (int i = chars.length - 1; i != 0; --i) {
-                chars[i] = Character.toLowerCase(chars[i]);
-            }
-        });
+        Objects.requireNonNull(xs);
+        Objects.requireNonNull(ys);
 
-        final boolean result = equals(lowerXs, lowerYs, minElementChecks);
-        shred(lowerXs);
-        shred(lowerYs);
-        return result;
+        int result = 0;
+        final int xsLength = xs.length();
+        final int ysLength = ys.length();
+        for (int n = max(xsLength, max(ysLength, max(minElementChecks, 1))) - 1; 0 <= n; --n) {
+            final int x = (n < xsLength) ? CaseFolding.fold(xs.charAt(n)) : -1;
+            final int y = (n < ysLength) ? CaseFolding.fold(ys.charAt(n)) : -1;
+            result |= (x ^ y);
+        }
+        return result == 0;
     }
 }
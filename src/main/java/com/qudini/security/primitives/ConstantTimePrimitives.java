@@ -0,0 +1,201 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+import static java.lang.Math.max;
+
+/**
+ * Branch-free building blocks for constant-time code. None of them branches or indexes memory on secret values; they
+ * only branch on lengths and on the validity of arguments.
+ * <p>
+ * Conditions are passed around as masks: an int that is either all ones ({@code -1}) for true or all zeros for
+ * false. The {@code *Mask} methods make masks, and the other methods consume them. Passing any other value as a mask
+ * gives unspecified results.
+ */
+@CheckReturnValue
+@ParametersAreNonnullByDefault
+public final class ConstantTimePrimitives {
+
+    private ConstantTimePrimitives() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * All ones if {@code x} is zero, or all zeros otherwise.
+     */
+    public static int isZeroMask(final int x) {
+        return ~((x | -x) >> (Integer.SIZE - 1));
+    }
+
+    /**
+     * All ones if {@code x} is zero, or all zeros otherwise.
+     */
+    public static int isZeroMask(final long x) {
+        return (int) ~((x | -x) >> (Long.SIZE - 1));
+    }
+
+    /**
+     * All ones if {@code a} equals {@code b}, or all zeros otherwise.
+     */
+    public static int equalMask(final int a, final int b) {
+        return isZeroMask(a ^ b);
+    }
+
+    /**
+     * All ones if {@code a} is less than {@code b}, or all zeros otherwise.
+     */
+    public static int lessThanMask(final int a, final int b) {
+
+        // The sign of a - b, corrected for overflow when a and b have different signs.
+        final int difference = a - b;
+        return (difference ^ ((a ^ b) & (difference ^ a))) >> (Integer.SIZE - 1);
+    }
+
+    /**
+     * {@code a} if {@code mask} is all ones, or {@code b} if it is all zeros.
+     */
+    public static int select(final int mask, final int a, final int b) {
+        return b ^ (mask & (a ^ b));
+    }
+
+    /**
+     * {@code a} if {@code mask} is all ones, or {@code b} if it is all zeros.
+     */
+    public static long select(final int mask, final long a, final long b) {
+        return b ^ (mask & (a ^ b));
+    }
+
+    /**
+     * {@code a} if {@code mask} is all ones, or {@code b} if it is all zeros.
+     */
+    public static byte select(final int mask, final byte a, final byte b) {
+        return (byte) (b ^ (mask & (a ^ b)));
+    }
+
+    /**
+     * Whether every byte of the array is zero, checking all of them.
+     */
+    public static boolean isZero(final byte[] xs) {
+        int result = 0;
+        for (final byte x : xs) {
+            result |= x;
+        }
+        return result == 0;
+    }
+
+    /**
+     * Copy {@code length} bytes from {@code source} into {@code destination} if {@code mask} is all ones, or leave
+     * the destination unchanged if it is all zeros. Every byte of the destination range is written either way.
+     *
+     * @throws IndexOutOfBoundsException if either range does not lie within its array.
+     */
+    public static void conditionalCopy(
+            final int mask,
+            final byte[] source,
+            final int sourceOffset,
+            final byte[] destination,
+            final int destinationOffset,
+            final int length
+    ) {
+        ArrayKernels.checkRange(source.length, sourceOffset, length);
+        ArrayKernels.checkRange(destination.length, destinationOffset, length);
+
+        for (int i = 0; i < length; ++i) {
+            final int d = destinationOffset + i;
+            destination[d] = select(mask, source[sourceOffset + i], destination[d]);
+        }
+    }
+
+    /**
+     * Swap the contents of two arrays of the same length if {@code mask} is all ones, or leave them unchanged if it is
+     * all zeros. Every byte of both arrays is written either way.
+     *
+     * @throws IllegalArgumentException if the arrays' lengths differ.
+     */
+    public static void conditionalSwap(final int mask, final byte[] xs, final byte[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("only arrays of the same length can be swapped");
+        }
+
+        for (int i = 0; i < xs.length; ++i) {
+            final int difference = mask & (xs[i] ^ ys[i]);
+            xs[i] ^= difference;
+            ys[i] ^= difference;
+        }
+    }
+
+    /**
+     * Compare two byte arrays lexicographically as unsigned bytes, returning {@code -1}, {@code 0} or {@code 1}; a
+     * proper prefix of an array orders before it. Guaranteed to run in constant time with at least
+     * {@code minElementChecks}, whichever byte the arrays first differ in.
+     */
+    public static int compare(final byte[] xs, final byte[] ys, final int minElementChecks) {
+        Objects.requireNonNull(xs);
+        Objects.requireNonNull(ys);
+
+        // Bytes past the end of an array are -1, which orders before any unsigned byte. Only the first difference
+        // found is kept, so every later one is masked away rather than skipped.
+        int result = 0;
+        final int xsLength = xs.length;
+        final int ysLength = ys.length;
+        final int checks = max(xsLength, max(ysLength, max(minElementChecks, 1)));
+        for (int n = 0; n < checks; ++n) {
+            final int x = (n < xsLength) ? (xs[n] & 0xFF) : -1;
+            final int y = (n < ysLength) ? (ys[n] & 0xFF) : -1;
+            result = select(isZeroMask(result), signum(x - y), result);
+        }
+        return result;
+    }
+
+    /**
+     * The element of {@code table} at {@code index}, reading every element so that the index cannot be learnt from
+     * which memory was accessed.
+     *
+     * @throws IndexOutOfBoundsException if the index is outside the table.
+     */
+    public static int lookup(final int[] table, final int index) {
+        checkIndex(table.length, index);
+
+        int result = 0;
+        for (int i = 0; i < table.length; ++i) {
+            result |= table[i] & indexMask(i, index);
+        }
+        return result;
+    }
+
+    /**
+     * The element of {@code table} at {@code index}, reading every element.
+     *
+     * @throws IndexOutOfBoundsException if the index is outside the table.
+     * @see #lookup(int[], int)
+     */
+    public static byte lookup(final byte[] table, final int index) {
+        checkIndex(table.length, index);
+
+        int result = 0;
+        for (int i = 0; i < table.length; ++i) {
+            result |= table[i] & indexMask(i, index);
+        }
+        return (byte) result;
+    }
+
+    /**
+     * All ones if two non-negative indexes are equal, or all zeros otherwise. Cheaper than {@link #equalMask(int, int)}
+     * because their XOR cannot be negative, so subtracting one only goes negative when it is zero.
+     */
+    private static int indexMask(final int i, final int index) {
+        return ((i ^ index) - 1) >> (Integer.SIZE - 1);
+    }
+
+    private static int signum(final int x) {
+        return (x >> (Integer.SIZE - 1)) | (-x >>> (Integer.SIZE - 1));
+    }
+
+    private static void checkIndex(final int length, final int index) {
+        if (index < 0 || length <= index) {
+            throw new IndexOutOfBoundsException("index " + index + " is out of bounds for length " + length);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.qudini.security.primitives;
+
+import java.nio.file.Path;
+
+/**
+ * What to do with a file once {@link Shredding#shred(Path, FileShredOption...)} has overwritten its contents.
+ */
+public enum FileShredOption {
+
+    /**
+     * Truncate the file to zero bytes, so its former length is no longer recorded either.
+     */
+    TRUNCATE,
+
+    /**
+     * Delete the file.
+     */
+    DELETE
+}
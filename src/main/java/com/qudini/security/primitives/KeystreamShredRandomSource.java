@@ -0,0 +1,112 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Generates shredding data from an AES-CTR keystream held per thread. Each thread seeds its cipher once from
+ * {@link SecureRandom}, so the shared provider is only touched on first use and on reseeding.
+ */
+@ParametersAreNonnullByDefault
+final class KeystreamShredRandomSource implements ShredRandomSource {
+
+    static final KeystreamShredRandomSource INSTANCE = new KeystreamShredRandomSource();
+
+    private static final int KEY_SIZE = 16;
+    private static final int SCRATCH_SIZE = 8 * 1024;
+
+    // Reseed well before any concern about the amount of keystream produced under one key.
+    private static final long RESEED_INTERVAL = 1L << 32;
+
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+
+    // Never written to; the plaintext the keystream is XORed into.
+    private static final byte[] ZEROS = new byte[SCRATCH_SIZE];
+
+    private final ThreadLocal<Keystream> keystreams = ThreadLocal.withInitial(Keystream::new);
+
+    private KeystreamShredRandomSource() {
+    }
+
+    @Override
+    public void nextBytes(final byte[] bytes, final int offset, final int length) {
+        ArrayKernels.checkRange(bytes.length, offset, length);
+
+        // Feed the cipher in scratch-sized pieces, which stay in cache and match the size of the zero plaintext.
+        final Keystream keystream = keystreams.get();
+        for (int position = offset, end = offset + length; position < end; position += SCRATCH_SIZE) {
+            keystream.fill(bytes, position, Math.min(SCRATCH_SIZE, end - position));
+        }
+    }
+
+    @Override
+    public void nextChars(final char[] chars, final int offset, final int length) {
+        ArrayKernels.checkRange(chars.length, offset, length);
+
+        final Keystream keystream = keystreams.get();
+        final byte[] scratch = keystream.scratch;
+        int position = offset;
+        int remaining = length;
+        while (0 < remaining) {
+            final int count = Math.min(remaining, scratch.length / 2);
+            keystream.fill(scratch, 0, count * 2);
+            ArrayKernels.bytesToChars(scratch, 0, chars, position, count);
+            position += count;
+            remaining -= count;
+        }
+    }
+
+    private static final class Keystream {
+
+        private final Cipher cipher;
+        private final byte[] scratch = new byte[SCRATCH_SIZE];
+        private long untilReseed;
+
+        Keystream() {
+            try {
+                cipher = Cipher.getInstance("AES/CTR/NoPadding");
+            } catch (final GeneralSecurityException exception) {
+                throw new IllegalStateException("AES/CTR is required by the JRE specification", exception);
+            }
+            reseed();
+        }
+
+        void fill(final byte[] bytes, final int offset, final int length) {
+            if (untilReseed < length) {
+                reseed();
+            }
+            untilReseed -= length;
+
+            // CTR mode XORs the keystream into its input, so encrypting zeros yields the raw keystream. Encrypting from
+            // a separate array rather than in place stops the cipher copying its input to handle the overlap.
+            try {
+                cipher.update(ZEROS, 0, length, bytes, offset);
+            } catch (final ShortBufferException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        private void reseed() {
+            final byte[] seed = new byte[KEY_SIZE * 2];
+            SEED_SOURCE.nextBytes(seed);
+            try {
+                cipher.init(
+                        Cipher.ENCRYPT_MODE,
+                        new SecretKeySpec(seed, 0, KEY_SIZE, "AES"),
+                        new IvParameterSpec(seed, KEY_SIZE, KEY_SIZE)
+                );
+            } catch (final GeneralSecurityException exception) {
+                throw new IllegalStateException("AES-128 is required by the JRE specification", exception);
+            } finally {
+                Arrays.fill(seed, (byte) 0);
+            }
+            untilReseed = RESEED_INTERVAL;
+        }
+    }
+}
@@ -18,7 +18,7 @@ public final class NonCopyingCharArraySequencer implements CharSequence {
         this(chars, 0, chars.length);
     }
 
-    private NonCopyingCharArraySequencer(final char[] chars, final int start, final int end) {
+    NonCopyingCharArraySequencer(final char[] chars, final int start, final int end) {
         if (end < start) {
             throw new IllegalArgumentException("the start index cannot be less than the end index");
         }
@@ -35,11 +35,25 @@ public final class NonCopyingCharArraySequencer implements CharSequence {
 
     @Override
     public char charAt(int index) {
-        return chars[start + index];
+        return chars[start + ArrayKernels.checkIndex(index, end - start)];
     }
 
     @Override
     public CharSequence subSequence(int start, int end) {
-        return new NonCopyingCharArraySequencer(chars, start, end);
+        if (start < 0 || end < start || length() < end) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new NonCopyingCharArraySequencer(chars, this.start + start, this.start + end);
+    }
+
+    /**
+     * The underlying array, for reading the sequence in place from {@link #offset()}.
+     */
+    char[] array() {
+        return chars;
+    }
+
+    int offset() {
+        return start;
     }
 }
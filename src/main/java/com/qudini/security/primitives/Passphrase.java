@@ -7,20 +7,18 @@ import com.password4j.ScryptFunction;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.nio.charset.Charset;
 import java.security.SecureRandom;
-import java.util.Base64;
-import java.util.List;
 import java.util.Optional;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static java.lang.Math.max;
 
 /**
  * Stores a confirmed passphrase; once stored, only one thing can be done with it: comparing with other passphrases.
- * The passphrase is properly shredded once released as a resource.
+ * The passphrase is properly shredded once released as a resource. If it is never closed, it is shredded in the
+ * background once garbage collected, which is later but still better than never. Every method that reads the chars
+ * keeps the passphrase reachable until it is done, so they cannot be shredded under it.
  */
 @ParametersAreNonnullByDefault
 public final class Passphrase implements AutoCloseable {
@@ -30,8 +28,20 @@ public final class Passphrase implements AutoCloseable {
     private static final int SALT_SIZE = 64;
     private Optional<char[]> chars;
 
+    // Only the first length chars are the passphrase; arrays handed over by a SecureCharBuilder have spare capacity.
+    private final int length;
+
+    // Shreds the chars if this passphrase is garbage collected without being closed.
+    private final SecretCleaner.Registration cleanup;
+
     private Passphrase(final char[] chars) {
+        this(chars, chars.length);
+    }
+
+    private Passphrase(final char[] chars, final int length) {
         this.chars = Optional.of(chars);
+        this.length = length;
+        this.cleanup = SecretCleaner.register(this, chars);
     }
 
     /**
@@ -46,18 +56,33 @@ public final class Passphrase implements AutoCloseable {
     @Nonnull
     @CheckReturnValue
     public static Passphrase create(final char[] passphrase) {
-        try {
-            final Passphrase pass = new Passphrase(passphrase);
+        return create(passphrase, passphrase.length);
+    }
 
-            if (!pass.meetsComplexityRequirements()) {
-                throw new InvalidPassphraseException();
-            }
+    /**
+     * Store a new passphrase built up in a {@link SecureCharBuilder}, taking over its backing array without copying
+     * and leaving the builder empty.
+     *
+     * @see #create(char[])
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static Passphrase create(final SecureCharBuilder passphrase) {
+        final int length = passphrase.length();
+        return create(passphrase.takeValue(), length);
+    }
+
+    @Nonnull
+    @CheckReturnValue
+    private static Passphrase create(final char[] passphrase, final int length) {
+        final Passphrase pass = new Passphrase(passphrase, length);
 
-            return pass;
-        } catch (final InvalidPassphraseException | ConfirmationDoesNotMatchException exception) {
-            Shredding.shred(passphrase);
-            throw exception;
+        if (!pass.meetsComplexityRequirements()) {
+            pass.close();
+            throw new InvalidPassphraseException();
         }
+
+        return pass;
     }
 
     @Nonnull
@@ -78,7 +103,7 @@ public final class Passphrase implements AutoCloseable {
             // If the user provided the same char array for both the passphrase and the confirmation, don't shred it
             // as the passphrase characters are still needed.
             if (confirmation != passphrase) {
-                Shredding.shred(confirmation);
+                Shredding.release(confirmation);
             }
         }
     }
@@ -146,6 +171,19 @@ public final class Passphrase implements AutoCloseable {
         return new Passphrase(passphrase);
     }
 
+    /**
+     * Store a passphrase attempt built up in a {@link SecureCharBuilder}, taking over its backing array without
+     * copying and leaving the builder empty.
+     *
+     * @see #attempt(char[])
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static Passphrase attempt(final SecureCharBuilder passphrase) {
+        final int length = passphrase.length();
+        return new Passphrase(passphrase.takeValue(), length);
+    }
+
     /**
      * Attempt a passphrase derived from a string; not recommended as it involves immutable strings, which cannot be
      * shredded.
@@ -193,13 +231,16 @@ public final class Passphrase implements AutoCloseable {
 
     @Nonnull
     @CheckReturnValue
-    private static byte[] generateBase64() {
+    private static char[] generateBase64() {
         final byte[] bytes = new byte[SALT_SIZE];
 
         final SecureRandom random = new SecureRandom();
         random.nextBytes(bytes);
 
-        return Base64.getEncoder().encode(bytes);
+        final char[] encoded = new char[ConstantTimeEncoding.base64Length(bytes.length)];
+        ConstantTimeEncoding.encodeBase64(ConstantTimeEncoding.Alphabet.BASE64, bytes, 0, bytes.length, encoded, 0);
+        Shredding.shred(bytes);
+        return encoded;
     }
 
     @Nonnull
@@ -208,7 +249,7 @@ public final class Passphrase implements AutoCloseable {
         final int m = 30;
         for (int n = 0; n < m; ++n) {
             try {
-                final char[] random = new String(generateBase64(), Charset.forName("ascii")).toCharArray();
+                final char[] random = generateBase64();
                 return confirm(random, random, minElementChecks);
             } catch (final InvalidPassphraseException | ConfirmationDoesNotMatchException exception) {
             }
@@ -239,10 +280,19 @@ public final class Passphrase implements AutoCloseable {
      * Shred the underlying passphrase, and invalidate it for other operations.
      */
     public void close() {
-        chars = chars.flatMap(presentChars -> {
-            Shredding.shred(presentChars);
-            return Optional.empty();
-        });
+        takeChars().ifPresent(Shredding::release);
+    }
+
+    /**
+     * Invalidate this passphrase as {@link #close()} does, but hand its chars to the caller to shred rather than
+     * shredding them here.
+     */
+    @Nonnull
+    Optional<char[]> takeChars() {
+        final Optional<char[]> taken = chars;
+        chars = Optional.empty();
+        taken.ifPresent(presentChars -> cleanup.cancel());
+        return taken;
     }
 
     /**
@@ -258,7 +308,7 @@ public final class Passphrase implements AutoCloseable {
 
         Stream.of(chars, passphrase.chars).forEach(x -> x.orElseThrow(PassphraseShreddedException::new));
 
-        return equals(passphrase, max(chars.get().length, passphrase.chars.get().length));
+        return equals(passphrase, max(length, passphrase.length));
     }
 
     @Override
@@ -283,7 +333,7 @@ public final class Passphrase implements AutoCloseable {
 
         final char[] charArray = chars.orElseThrow(PassphraseShreddedException::new);
 
-        if (salt.length < charArray.length) {
+        if (salt.length < length) {
             throw new SaltNotLongEnoughException();
         }
         if (pepper.length < 32) {
@@ -296,15 +346,27 @@ public final class Passphrase implements AutoCloseable {
             throw new InvalidCipherParameterArgumentException();
         }
 
-        final byte[] hashingSalt = new byte[salt.length + pepper.length];
+        // The pooled array may be longer than needed, so only the first hashingSaltLength bytes are meaningful.
+        final int hashingSaltLength = salt.length + pepper.length;
+        final byte[] hashingSalt = SecretBufferPool.shared().acquireBytes(hashingSaltLength);
         System.arraycopy(salt, 0, hashingSalt, 0, salt.length);
         System.arraycopy(pepper, 0, hashingSalt, salt.length, pepper.length);
 
-        Hash hash = Password.hash(String.valueOf(charArray))
-                .addSalt(new String(hashingSalt)) // use this for backwards compat rather than .addSalt(...).addPepper(...)
-                .with(ScryptFunction.getInstance((int) processorCost, (int) memoryCost, parallelisationParameter, derivedKeyLength));
-
-        return Base64.getEncoder().encode(hash.getBytes());
+        try {
+            Hash hash = Password.hash(String.valueOf(charArray, 0, length))
+                    .addSalt(new String(hashingSalt, 0, hashingSaltLength)) // use this for backwards compat rather than .addSalt(...).addPepper(...)
+                    .with(ScryptFunction.getInstance((int) processorCost, (int) memoryCost, parallelisationParameter, derivedKeyLength));
+
+            final byte[] hashBytes = hash.getBytes();
+            final byte[] encoded = new byte[ConstantTimeEncoding.base64Length(hashBytes.length)];
+            ConstantTimeEncoding.encodeBase64(
+                    ConstantTimeEncoding.Alphabet.BASE64, hashBytes, 0, hashBytes.length, encoded, 0
+            );
+            return encoded;
+        } finally {
+            SecretBufferPool.shared().release(hashingSalt);
+            Reachability.fence(this);
+        }
 
     }
 
@@ -318,7 +380,11 @@ public final class Passphrase implements AutoCloseable {
     @Nonnull
     @CheckReturnValue
     public Optional<String> asStringForLegacyAuthentication() {
-        return chars.map(String::valueOf);
+        try {
+            return chars.map(presentChars -> String.valueOf(presentChars, 0, length));
+        } finally {
+            Reachability.fence(this);
+        }
     }
 
     /**
@@ -326,12 +392,33 @@ public final class Passphrase implements AutoCloseable {
      */
     @CheckReturnValue
     public boolean equals(final Passphrase that, final int minElementChecks) {
-        final List<char[]> passphrases = Stream
-                .of(this, that)
-                .map(passphrase -> passphrase.chars.orElseThrow(PassphraseShreddedException::new))
-                .collect(Collectors.toList());
+        try {
+            return ConstantTimeOperations.equals(
+                    chars.orElseThrow(PassphraseShreddedException::new), 0, length,
+                    that.chars.orElseThrow(PassphraseShreddedException::new), 0, that.length,
+                    minElementChecks
+            );
+        } finally {
+            Reachability.fence(this);
+            Reachability.fence(that);
+        }
+    }
 
-        return ConstantTimeOperations.equals(passphrases.get(0), passphrases.get(1), minElementChecks);
+    /**
+     * Checks the passphrase against UTF-8 bytes, such as an attempt read off the wire, in constant time, using at least
+     * minElementChecks character checks and without decoding the bytes into a copy that would need shredding.
+     */
+    @CheckReturnValue
+    public boolean equalsUtf8(final byte[] utf8, final int minElementChecks) {
+        try {
+            return ConstantTimeOperations.equalsUtf8(
+                    new NonCopyingCharArraySequencer(chars.orElseThrow(PassphraseShreddedException::new), 0, length),
+                    utf8,
+                    minElementChecks
+            );
+        } finally {
+            Reachability.fence(this);
+        }
     }
 
     public static class InvalidPassphraseException extends RuntimeException {
@@ -0,0 +1,30 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Keeps objects reachable while a secret they own is in use, so the {@link SecretCleaner} cannot shred it halfway
+ * through. Once a method has loaded an owner's array, the JIT may treat the owner as unreachable even though the array
+ * is still being read; a fence after the last use of the array prevents that.
+ * <p>
+ * This is the JDK 8 version, which has no {@code Reference.reachabilityFence}: an empty block synchronized on the
+ * object, which the JIT may not remove for an object that has escaped. The multi-release JAR holds a JDK 9 version
+ * under {@code META-INF/versions/9} that calls {@code Reference.reachabilityFence} instead, which costs nothing.
+ */
+@ParametersAreNonnullByDefault
+final class Reachability {
+
+    private Reachability() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Keep {@code object} reachable at least until this call.
+     */
+    @SuppressWarnings({"EmptySynchronizedStatement", "SynchronizationOnLocalVariableOrMethodParameter"})
+    static void fence(final Object object) {
+        synchronized (object) {
+            // Only the lock matters.
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Hands out reusable scratch arrays for secrets, shredding them as they come back, so hot paths stop feeding the
+ * garbage collector a steady stream of sensitive arrays.
+ * <p>
+ * Arrays come in power-of-two size classes, so an acquired array may be longer than requested and callers must track
+ * the length they actually use. Its contents are whatever shredding left behind. Each thread keeps a small cache per
+ * size class and falls back to a bounded shared cache; arrays beyond either cache are shredded and left to the garbage
+ * collector.
+ * <p>
+ * An array must not be used after it is released, or released twice, as it may already have been handed to another
+ * caller.
+ */
+@ParametersAreNonnullByDefault
+public final class SecretBufferPool {
+
+    private static final int MIN_LENGTH_SHIFT = 4;
+    private static final int MIN_LENGTH = 1 << MIN_LENGTH_SHIFT;
+
+    private static final SecretBufferPool SHARED = create(64 * 1024, 8, 256);
+
+    private final SizeClasses<byte[]> bytes;
+    private final SizeClasses<char[]> chars;
+
+    private SecretBufferPool(final int maxPooledLength, final int perThreadCapacity, final int sharedCapacity) {
+        if (maxPooledLength < MIN_LENGTH || Integer.bitCount(maxPooledLength) != 1) {
+            throw new IllegalArgumentException("maxPooledLength must be a power of two of at least " + MIN_LENGTH);
+        }
+        if (perThreadCapacity < 0 || sharedCapacity < 0) {
+            throw new IllegalArgumentException("capacities cannot be negative");
+        }
+
+        final int classes = Integer.numberOfTrailingZeros(maxPooledLength) - MIN_LENGTH_SHIFT + 1;
+        this.bytes = new SizeClasses<>(
+                classes, perThreadCapacity, sharedCapacity, byte[]::new, array -> array.length, Shredding::shred
+        );
+        this.chars = new SizeClasses<>(
+                classes, perThreadCapacity, sharedCapacity, char[]::new, array -> array.length, Shredding::shred
+        );
+    }
+
+    /**
+     * The process-wide pool, which pools arrays of up to 64 Ki elements.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static SecretBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Create a pool for arrays up to {@code maxPooledLength} long, which must be a power of two. Each thread caches up
+     * to {@code perThreadCapacity} arrays per size class, and up to {@code sharedCapacity} more per size class are
+     * shared between threads.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static SecretBufferPool create(
+            final int maxPooledLength,
+            final int perThreadCapacity,
+            final int sharedCapacity
+    ) {
+        return new SecretBufferPool(maxPooledLength, perThreadCapacity, sharedCapacity);
+    }
+
+    /**
+     * Acquire a byte array at least {@code minimumLength} long.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public byte[] acquireBytes(final int minimumLength) {
+        return bytes.acquire(minimumLength);
+    }
+
+    /**
+     * Acquire a char array at least {@code minimumLength} long.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public char[] acquireChars(final int minimumLength) {
+        return chars.acquire(minimumLength);
+    }
+
+    /**
+     * Shred a byte array and return it to the pool.
+     */
+    public void release(final byte[] array) {
+        bytes.release(array);
+    }
+
+    /**
+     * Shred a char array and return it to the pool.
+     */
+    public void release(final char[] array) {
+        chars.release(array);
+    }
+
+    /**
+     * Return a byte array to the pool without shredding it, for scratch arrays that never held a secret.
+     */
+    void recycle(final byte[] array) {
+        bytes.recycle(array);
+    }
+
+    private static final class SizeClasses<T> {
+
+        private final int perThreadCapacity;
+        private final int sharedCapacity;
+        private final IntFunction<T> allocate;
+        private final ToIntFunction<T> length;
+        private final Consumer<T> shred;
+
+        private final Queue<T>[] shared;
+        private final AtomicInteger[] sharedSizes;
+        private final ThreadLocal<ThreadCache> threadCaches;
+
+        @SuppressWarnings("unchecked")
+        SizeClasses(
+                final int classes,
+                final int perThreadCapacity,
+                final int sharedCapacity,
+                final IntFunction<T> allocate,
+                final ToIntFunction<T> length,
+                final Consumer<T> shred
+        ) {
+            this.perThreadCapacity = perThreadCapacity;
+            this.sharedCapacity = sharedCapacity;
+            this.allocate = allocate;
+            this.length = length;
+            this.shred = shred;
+
+            this.shared = new Queue[classes];
+            this.sharedSizes = new AtomicInteger[classes];
+            for (int i = 0; i < classes; ++i) {
+                shared[i] = new ConcurrentLinkedQueue<>();
+                sharedSizes[i] = new AtomicInteger();
+            }
+            this.threadCaches = ThreadLocal.withInitial(() -> new ThreadCache(classes, perThreadCapacity));
+        }
+
+        T acquire(final int minimumLength) {
+            if (minimumLength < 0) {
+                throw new IllegalArgumentException("minimumLength cannot be negative");
+            }
+
+            final int sizeClass = sizeClass(minimumLength);
+            if (shared.length <= sizeClass) {
+                return allocate.apply(minimumLength);
+            }
+
+            final T cached = threadCaches.get().pop(sizeClass);
+            if (cached != null) {
+                return cached;
+            }
+
+            final T fromShared = shared[sizeClass].poll();
+            if (fromShared != null) {
+                sharedSizes[sizeClass].decrementAndGet();
+                return fromShared;
+            }
+
+            return allocate.apply(MIN_LENGTH << sizeClass);
+        }
+
+        void release(final T array) {
+            Objects.requireNonNull(array);
+            shred.accept(array);
+            recycle(array);
+        }
+
+        void recycle(final T array) {
+            final int arrayLength = length.applyAsInt(array);
+            if (Integer.bitCount(arrayLength) != 1 || arrayLength < MIN_LENGTH) {
+                return;
+            }
+            final int sizeClass = sizeClass(arrayLength);
+            if (shared.length <= sizeClass) {
+                return;
+            }
+
+            if (threadCaches.get().push(sizeClass, array)) {
+                return;
+            }
+
+            if (sharedSizes[sizeClass].incrementAndGet() <= sharedCapacity) {
+                shared[sizeClass].add(array);
+            } else {
+                sharedSizes[sizeClass].decrementAndGet();
+            }
+        }
+
+        private static int sizeClass(final int length) {
+            return length <= MIN_LENGTH ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(length - 1) - MIN_LENGTH_SHIFT;
+        }
+
+        private final class ThreadCache {
+
+            private final Object[][] stacks;
+            private final int[] sizes;
+
+            ThreadCache(final int classes, final int capacity) {
+                this.stacks = new Object[classes][capacity];
+                this.sizes = new int[classes];
+            }
+
+            @SuppressWarnings("unchecked")
+            T pop(final int sizeClass) {
+                if (sizes[sizeClass] == 0) {
+                    return null;
+                }
+                final int top = --sizes[sizeClass];
+                final T array = (T) stacks[sizeClass][top];
+                stacks[sizeClass][top] = null;
+                return array;
+            }
+
+            boolean push(final int sizeClass, final T array) {
+                if (sizes[sizeClass] == perThreadCapacity) {
+                    return false;
+                }
+                stacks[sizeClass][sizes[sizeClass]++] = array;
+                return true;
+            }
+        }
+    }
+}
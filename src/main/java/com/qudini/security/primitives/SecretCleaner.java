@@ -0,0 +1,213 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Shreds the secrets of owners that become unreachable without being closed, such as a {@link Passphrase} created
+ * outside try-with-resources. It uses phantom references and a single low-priority daemon thread rather than
+ * finalizers, so registered owners are collected as normal. Anything a shred throws, even an {@link Error}, is passed
+ * to the thread's uncaught exception handler, and the cleaner carries on.
+ */
+@ParametersAreNonnullByDefault
+final class SecretCleaner {
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    // Registrations must stay reachable until their owner is closed or collected. Each thread keeps its own in an array
+    // that only it changes, so registering takes no lock; registrations that are no longer pending are dropped when the
+    // array fills up. Every thread's array is listed here so it stays reachable, and the cleaner thread takes over the
+    // pending registrations of threads that have died.
+    private static final ThreadLocal<Stripe> STRIPE = ThreadLocal.withInitial(SecretCleaner::newStripe);
+
+    // Guarded by itself.
+    private static final List<Stripe> STRIPES = new ArrayList<>();
+
+    // Only touched by the cleaner thread.
+    private static final Stripe ORPHANS = new Stripe(null);
+
+    static {
+        final Thread thread = new Thread(SecretCleaner::run, "secret-cleaner");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private SecretCleaner() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Shred {@code secret} once {@code owner} becomes unreachable, unless the returned registration is cancelled first.
+     * The secret must not refer back to the owner, or the owner will never become unreachable.
+     */
+    @Nonnull
+    @CheckReturnValue
+    static Registration register(final Object owner, final char[] secret) {
+        Objects.requireNonNull(owner);
+        Objects.requireNonNull(secret);
+
+        final Registration registration = new Registration(owner, secret);
+        STRIPE.get().add(registration);
+        return registration;
+    }
+
+    @Nonnull
+    private static Stripe newStripe() {
+        final Stripe stripe = new Stripe(Thread.currentThread());
+        synchronized (STRIPES) {
+            STRIPES.add(stripe);
+        }
+        return stripe;
+    }
+
+    private static void run() {
+        long nextSweep = System.nanoTime();
+        while (true) {
+            try {
+                final Registration registration = (Registration) QUEUE.remove(SWEEP_INTERVAL_MILLIS);
+                if (registration != null) {
+                    final char[] secret = registration.take();
+                    if (secret != null) {
+                        Shredding.shred(secret);
+                    }
+                }
+                if (0 <= System.nanoTime() - nextSweep) {
+                    nextSweep = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SWEEP_INTERVAL_MILLIS);
+                    adoptOrphans();
+                }
+            } catch (final InterruptedException exception) {
+                // This is a daemon for the whole JVM's lifetime; keep going.
+            } catch (final Throwable throwable) {
+                // A failed shred or sweep must not stop every later one, nor kill the only thread that runs them, so
+                // even an Error is only reported, as if it had been uncaught.
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, throwable);
+            }
+        }
+    }
+
+    /**
+     * Move the pending registrations of dead threads to the cleaner's own array, and drop their arrays. A thread's
+     * actions happen before another thread sees it is no longer alive, so its array can be read safely from then on.
+     */
+    private static void adoptOrphans() {
+        synchronized (STRIPES) {
+            for (final Iterator<Stripe> stripes = STRIPES.iterator(); stripes.hasNext(); ) {
+                final Stripe stripe = stripes.next();
+                if (stripe.thread != null && !stripe.thread.isAlive()) {
+                    for (int i = 0; i < stripe.size; ++i) {
+                        if (stripe.registrations[i].isPending()) {
+                            ORPHANS.add(stripe.registrations[i]);
+                        }
+                    }
+                    stripes.remove();
+                }
+            }
+        }
+        ORPHANS.compact();
+    }
+
+    /**
+     * The registrations made by one thread, which only that thread changes until it dies.
+     */
+    private static final class Stripe {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        @Nullable
+        private final Thread thread;
+        private Registration[] registrations = new Registration[INITIAL_CAPACITY];
+        private int size;
+
+        private Stripe(@Nullable final Thread thread) {
+            this.thread = thread;
+        }
+
+        private void add(final Registration registration) {
+            if (size == registrations.length) {
+                compact();
+
+                // Grow if most registrations are still pending, so compacting stays amortised constant time.
+                if (registrations.length / 2 < size) {
+                    registrations = Arrays.copyOf(registrations, registrations.length * 2);
+                }
+            }
+            registrations[size++] = registration;
+        }
+
+        private void compact() {
+            int pending = 0;
+            for (int i = 0; i < size; ++i) {
+                if (registrations[i].isPending()) {
+                    registrations[pending++] = registrations[i];
+                }
+            }
+            Arrays.fill(registrations, pending, size, null);
+            size = pending;
+        }
+    }
+
+    static final class Registration extends PhantomReference<Object> {
+
+        private static final int PENDING = 0;
+        private static final int DONE = 1;
+        private static final AtomicIntegerFieldUpdater<Registration> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Registration.class, "state");
+
+        // Only read or cleared by the thread that moves the registration out of PENDING.
+        @Nullable
+        private char[] secret;
+        private volatile int state;
+
+        private Registration(final Object owner, final char[] secret) {
+            super(owner, QUEUE);
+            this.secret = secret;
+        }
+
+        /**
+         * Stop tracking the owner because it shredded its secret itself. Returns whether the registration was still
+         * pending.
+         * <p>
+         * The reference is not cleared, as clearing is a native call that would double the cost of a passphrase's
+         * lifecycle; if the owner is collected before the registration is dropped from its array, the cleaner just
+         * finds nothing to shred.
+         */
+        boolean cancel() {
+            if (STATE.compareAndSet(this, PENDING, DONE)) {
+                secret = null;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isPending() {
+            return state == PENDING;
+        }
+
+        /**
+         * The secret to shred now that the owner has been collected, or null if the registration was cancelled.
+         */
+        @Nullable
+        private char[] take() {
+            if (STATE.compareAndSet(this, PENDING, DONE)) {
+                final char[] taken = secret;
+                secret = null;
+                return taken;
+            }
+            return null;
+        }
+    }
+}
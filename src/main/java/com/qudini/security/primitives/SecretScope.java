@@ -0,0 +1,305 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Tracks the secrets created while handling one request, and shreds every one of them when closed, so none can be
+ * forgotten on an exception path:
+ * <pre>{@code
+ * try (SecretScope scope = SecretScope.open()) {
+ *     final char[] confirmation = scope.register(readConfirmation());
+ *     final Passphrase passphrase = scope.register(Passphrase.attempt(readPassphrase()));
+ *     ...
+ * }
+ * }</pre>
+ * Arrays, {@link StringBuilder}s and the chars of registered passphrases are shredded together in one batch on close,
+ * sharing one random draw per pass. Registered passphrases and builders are closed, and memory-mapped buffers are
+ * forced out to their files after shredding, as {@link Shredding#shred(MappedByteBuffer)} does. Secrets are sorted by
+ * kind into arrays as they are registered, so closing does not inspect each one's type, and registering one only
+ * allocates when its kind's array has to grow. That makes a scope about as fast as closing each secret by hand, but
+ * not cheaper: it still allocates itself and an array for each kind of secret registered.
+ * <p>
+ * A scope is meant to be confined to one thread, and is not safe to share between threads.
+ */
+@ParametersAreNonnullByDefault
+public final class SecretScope implements AutoCloseable {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final Object[] NO_SECRETS = new Object[0];
+    private static final Passphrase[] NO_PASSPHRASES = new Passphrase[0];
+    private static final ByteBuffer[] NO_BYTE_BUFFERS = new ByteBuffer[0];
+    private static final MappedByteBuffer[] NO_MAPPED_BUFFERS = new MappedByteBuffer[0];
+    private static final CharBuffer[] NO_CHAR_BUFFERS = new CharBuffer[0];
+    private static final SecureCharBuilder[] NO_BUILDERS = new SecureCharBuilder[0];
+
+    private final ShredPolicy policy;
+
+    // Arrays and StringBuilders, shredded together in one batch; passphrases add their chars to it on close.
+    private Object[] batch = NO_SECRETS;
+    private int batchSize;
+    private Passphrase[] passphrases = NO_PASSPHRASES;
+    private int passphraseCount;
+
+    // Buffers and SecureCharBuilders, each shredded or closed on its own.
+    private ByteBuffer[] byteBuffers = NO_BYTE_BUFFERS;
+    private int byteBufferCount;
+    private MappedByteBuffer[] mappedBuffers = NO_MAPPED_BUFFERS;
+    private int mappedBufferCount;
+    private CharBuffer[] charBuffers = NO_CHAR_BUFFERS;
+    private int charBufferCount;
+    private SecureCharBuilder[] builders = NO_BUILDERS;
+    private int builderCount;
+
+    private boolean closed;
+
+    private SecretScope(final ShredPolicy policy) {
+        this.policy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Open a scope that shreds with the default policy.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static SecretScope open() {
+        return open(Shredding.getDefaultPolicy());
+    }
+
+    @Nonnull
+    @CheckReturnValue
+    public static SecretScope open(final ShredPolicy policy) {
+        return new SecretScope(policy);
+    }
+
+    @Nonnull
+    public char[] register(final char[] chars) {
+        trackBatched(chars);
+        return chars;
+    }
+
+    @Nonnull
+    public byte[] register(final byte[] bytes) {
+        trackBatched(bytes);
+        return bytes;
+    }
+
+    @Nonnull
+    public StringBuilder register(final StringBuilder builder) {
+        trackBatched(builder);
+        return builder;
+    }
+
+    /**
+     * Memory-mapped buffers, even when not registered as one, are forced out to their files once shredded.
+     *
+     * @throws IllegalArgumentException if the buffer is read-only, as it could not be shredded on close.
+     */
+    @Nonnull
+    public ByteBuffer register(final ByteBuffer buffer) {
+        if (buffer instanceof MappedByteBuffer) {
+            return register((MappedByteBuffer) buffer);
+        }
+        if (buffer.isReadOnly()) {
+            throw new IllegalArgumentException("a read-only buffer cannot be shredded");
+        }
+        if (closed) {
+            Shredding.shred(buffer, policy);
+            throw new IllegalStateException("the scope is already closed");
+        }
+
+        if (byteBufferCount == byteBuffers.length) {
+            byteBuffers = grow(byteBuffers);
+        }
+        byteBuffers[byteBufferCount++] = buffer;
+        return buffer;
+    }
+
+    /**
+     * The buffer is forced out to its file once shredded, as {@link Shredding#shred(MappedByteBuffer)} does.
+     *
+     * @throws IllegalArgumentException if the buffer is read-only, as it could not be shredded on close.
+     */
+    @Nonnull
+    public MappedByteBuffer register(final MappedByteBuffer buffer) {
+        if (buffer.isReadOnly()) {
+            throw new IllegalArgumentException("a read-only buffer cannot be shredded");
+        }
+        if (closed) {
+            Shredding.shred(buffer, policy);
+            throw new IllegalStateException("the scope is already closed");
+        }
+
+        if (mappedBufferCount == mappedBuffers.length) {
+            mappedBuffers = grow(mappedBuffers);
+        }
+        mappedBuffers[mappedBufferCount++] = buffer;
+        return buffer;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the buffer is read-only, as it could not be shredded on close.
+     */
+    @Nonnull
+    public CharBuffer register(final CharBuffer buffer) {
+        if (buffer.isReadOnly()) {
+            throw new IllegalArgumentException("a read-only buffer cannot be shredded");
+        }
+        if (closed) {
+            Shredding.shred(buffer, policy);
+            throw new IllegalStateException("the scope is already closed");
+        }
+
+        if (charBufferCount == charBuffers.length) {
+            charBuffers = grow(charBuffers);
+        }
+        charBuffers[charBufferCount++] = buffer;
+        return buffer;
+    }
+
+    @Nonnull
+    public SecureCharBuilder register(final SecureCharBuilder builder) {
+        Objects.requireNonNull(builder);
+        if (closed) {
+            builder.close();
+            throw new IllegalStateException("the scope is already closed");
+        }
+
+        if (builderCount == builders.length) {
+            builders = grow(builders);
+        }
+        builders[builderCount++] = builder;
+        return builder;
+    }
+
+    @Nonnull
+    public Passphrase register(final Passphrase passphrase) {
+        Objects.requireNonNull(passphrase);
+        if (closed) {
+            passphrase.close();
+            throw new IllegalStateException("the scope is already closed");
+        }
+
+        if (passphraseCount == passphrases.length) {
+            passphrases = grow(passphrases);
+        }
+        passphrases[passphraseCount++] = passphrase;
+        return passphrase;
+    }
+
+    /**
+     * The number of secrets registered so far.
+     */
+    @CheckReturnValue
+    public int size() {
+        return batchSize + passphraseCount + byteBufferCount + mappedBufferCount + charBufferCount + builderCount;
+    }
+
+    /**
+     * Shred every registered secret, and close every registered passphrase and builder. Closing again does nothing.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        // Move the passphrases' chars into the batch, and shred buffers and builders on their own, before shredding the
+        // batch. A failure to shred one secret must not stop the rest being shredded, so failures are only rethrown at
+        // the end. Even an Error is held back until everything else has been shredded.
+        Throwable failure = null;
+        for (int i = 0; i < passphraseCount; ++i) {
+            final Passphrase passphrase = passphrases[i];
+            passphrases[i] = null;
+            try {
+                final char[] chars = passphrase.takeChars().orElse(null);
+                if (chars != null) {
+                    addToBatch(chars);
+                }
+            } catch (final Throwable throwable) {
+                failure = Shredding.addFailure(failure, throwable);
+            }
+        }
+        for (int i = 0; i < byteBufferCount; ++i) {
+            final ByteBuffer buffer = byteBuffers[i];
+            byteBuffers[i] = null;
+            try {
+                Shredding.shred(buffer, policy);
+            } catch (final Throwable throwable) {
+                failure = Shredding.addFailure(failure, throwable);
+            }
+        }
+        for (int i = 0; i < mappedBufferCount; ++i) {
+            final MappedByteBuffer buffer = mappedBuffers[i];
+            mappedBuffers[i] = null;
+            try {
+                Shredding.shred(buffer, policy);
+            } catch (final Throwable throwable) {
+                failure = Shredding.addFailure(failure, throwable);
+            }
+        }
+        for (int i = 0; i < charBufferCount; ++i) {
+            final CharBuffer buffer = charBuffers[i];
+            charBuffers[i] = null;
+            try {
+                Shredding.shred(buffer, policy);
+            } catch (final Throwable throwable) {
+                failure = Shredding.addFailure(failure, throwable);
+            }
+        }
+        for (int i = 0; i < builderCount; ++i) {
+            final SecureCharBuilder builder = builders[i];
+            builders[i] = null;
+            try {
+                builder.close();
+            } catch (final Throwable throwable) {
+                failure = Shredding.addFailure(failure, throwable);
+            }
+        }
+
+        try {
+            if (0 < batchSize) {
+                Shredding.shredAll(batch, batchSize, policy);
+            }
+        } catch (final Throwable throwable) {
+            failure = Shredding.addFailure(failure, throwable);
+        } finally {
+            Arrays.fill(batch, 0, batchSize, null);
+            batchSize = 0;
+            passphraseCount = 0;
+            byteBufferCount = 0;
+            mappedBufferCount = 0;
+            charBufferCount = 0;
+            builderCount = 0;
+        }
+        Shredding.rethrow(failure);
+    }
+
+    private void trackBatched(final Object secret) {
+        Objects.requireNonNull(secret);
+        if (closed) {
+            Shredding.shredAll(new Object[]{secret}, 1, policy);
+            throw new IllegalStateException("the scope is already closed");
+        }
+        addToBatch(secret);
+    }
+
+    private void addToBatch(final Object secret) {
+        if (batchSize == batch.length) {
+            batch = grow(batch);
+        }
+        batch[batchSize++] = secret;
+    }
+
+    @Nonnull
+    private static <T> T[] grow(final T[] secrets) {
+        return Arrays.copyOf(secrets, Math.max(INITIAL_CAPACITY, secrets.length * 2));
+    }
+}
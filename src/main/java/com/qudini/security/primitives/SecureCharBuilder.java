@@ -0,0 +1,264 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.CharBuffer;
+import java.util.Objects;
+
+/**
+ * A growable sequence of characters for building up secrets. Unlike {@link StringBuilder}, it shreds its previous
+ * backing array whenever it grows, so no stale copies of the secret are left on the heap, and its contents can be
+ * handed to a {@link Passphrase} without copying. Old arrays are shredded as {@link Shredding#shred(char[])} does, with
+ * the default policy, or handed to the {@link AsyncShredder} if one is installed.
+ * <p>
+ * The default capacity holds 64 characters, so building a passphrase or token of that size never grows, and appends
+ * are at least as fast as a {@link StringBuilder}'s. Longer secrets pay for a shred on each growth, which makes bulk
+ * appends of kilobytes several times slower than a {@code StringBuilder}; size the builder up front when the length
+ * is known.
+ * <p>
+ * Closing the builder shreds its contents. {@link #subSequence(int, int)} views the backing array without copying, so
+ * it is only valid until the builder next grows or is closed; appending it to the builder itself is still safe, as an
+ * append reads its source before shredding the array it has outgrown.
+ */
+@ParametersAreNonnullByDefault
+public final class SecureCharBuilder implements CharSequence, Appendable, AutoCloseable {
+
+    // Large enough for most passphrases and tokens, so building one never grows.
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // Below this capacity, grow fourfold rather than twofold: every growth shreds the old array, so small builders
+    // trade some spare capacity for fewer shreds.
+    private static final int FAST_GROWTH_LIMIT = 4096;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final char[] EMPTY = new char[0];
+    private static final String REDACTED = "SecureCharBuilder[redacted]";
+
+    private char[] value;
+    private int length;
+
+    public SecureCharBuilder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a builder that can hold {@code capacity} characters before it first has to grow. Sizing it up front for
+     * the expected secret avoids growth entirely.
+     */
+    public SecureCharBuilder(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative");
+        }
+        this.value = capacity == 0 ? EMPTY : new char[capacity];
+    }
+
+    @Nonnull
+    public SecureCharBuilder append(final char c) {
+        if (length == value.length) {
+            grow(length + 1);
+        }
+        value[length++] = c;
+        return this;
+    }
+
+    @Nonnull
+    public SecureCharBuilder append(final char[] chars) {
+        return append(chars, 0, chars.length);
+    }
+
+    @Nonnull
+    public SecureCharBuilder append(final char[] chars, final int offset, final int count) {
+        Objects.requireNonNull(chars);
+        if (offset < 0 || count < 0 || chars.length - offset < count) {
+            throw new IndexOutOfBoundsException();
+        }
+        final char[] outgrown = reserve(count);
+        System.arraycopy(chars, offset, value, length, count);
+        length += count;
+        release(outgrown);
+        return this;
+    }
+
+    /**
+     * Append the remaining characters of a buffer in bulk. Unlike {@link CharBuffer#get(char[])}, this leaves the
+     * buffer's position unchanged.
+     */
+    @Nonnull
+    public SecureCharBuilder append(final CharBuffer buffer) {
+        final int count = buffer.remaining();
+        final char[] outgrown = reserve(count);
+        buffer.duplicate().get(value, length, count);
+        length += count;
+        release(outgrown);
+        return this;
+    }
+
+    /**
+     * Append a sequence, or {@code "null"} if it is null, as {@link Appendable} requires.
+     */
+    @Nonnull
+    @Override
+    public SecureCharBuilder append(@Nullable final CharSequence sequence) {
+        final CharSequence appended = sequence == null ? "null" : sequence;
+        return append(appended, 0, appended.length());
+    }
+
+    /**
+     * Append part of a sequence, or of {@code "null"} if it is null, as {@link Appendable} requires.
+     */
+    @Nonnull
+    @Override
+    public SecureCharBuilder append(@Nullable final CharSequence sequence, final int start, final int end) {
+        if (sequence == null) {
+            return append("null", start, end);
+        }
+        if (start < 0 || end < start || sequence.length() < end) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        final int count = end - start;
+        final char[] outgrown = reserve(count);
+        if (sequence instanceof String) {
+            ((String) sequence).getChars(start, end, value, length);
+        } else if (sequence instanceof StringBuilder) {
+            ((StringBuilder) sequence).getChars(start, end, value, length);
+        } else if (sequence instanceof SecureCharBuilder) {
+            System.arraycopy(((SecureCharBuilder) sequence).value, start, value, length, count);
+        } else {
+            for (int i = 0; i < count; ++i) {
+                value[length + i] = sequence.charAt(start + i);
+            }
+        }
+        length += count;
+        release(outgrown);
+        return this;
+    }
+
+    /**
+     * Shorten the builder, shredding the characters past the new length.
+     */
+    public void setLength(final int newLength) {
+        if (newLength < 0 || length < newLength) {
+            throw new IndexOutOfBoundsException("the length can only be reduced");
+        }
+        Shredding.shred(value, newLength, length);
+        length = newLength;
+    }
+
+    @CheckReturnValue
+    public int capacity() {
+        return value.length;
+    }
+
+    @CheckReturnValue
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @CheckReturnValue
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || length <= index) {
+            throw new IndexOutOfBoundsException("index " + index + " is out of bounds for length " + length);
+        }
+        return value[index];
+    }
+
+    @Nonnull
+    @CheckReturnValue
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        if (start < 0 || end < start || length < end) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new NonCopyingCharArraySequencer(value, start, end);
+    }
+
+    /**
+     * A fixed placeholder, never the contents. {@link CharSequence} asks for the characters as a string, but that
+     * would copy the secret into an immutable string that cannot be shredded, and {@code toString()} is called
+     * implicitly by string concatenation, logging and debuggers, so the copy could be made by accident.
+     */
+    @Nonnull
+    @CheckReturnValue
+    @Override
+    public String toString() {
+        return REDACTED;
+    }
+
+    /**
+     * Shred the contents and release the backing array; the builder is left empty and can be reused.
+     */
+    @Override
+    public void close() {
+        if (value.length != 0) {
+            Shredding.shred(value);
+        }
+        value = EMPTY;
+        length = 0;
+    }
+
+    /**
+     * The backing array, for reading the contents in place; only the first {@link #length()} characters are in use.
+     */
+    char[] array() {
+        return value;
+    }
+
+    /**
+     * Take the backing array for a {@link Passphrase}, leaving this builder empty. The caller owns the array from then
+     * on, and must read {@link #length()} beforehand to know how much of it is used.
+     */
+    char[] takeValue() {
+        final char[] taken = value;
+        value = EMPTY;
+        length = 0;
+        return taken;
+    }
+
+    /**
+     * Make room for {@code additional} more characters, returning the outgrown array if that meant growing. The caller
+     * must {@link #release} it once the appended characters have been read, as they may come from it.
+     */
+    @Nullable
+    private char[] reserve(final int additional) {
+        if (value.length - length < additional) {
+            final char[] outgrown = value;
+            value = grown(length + additional);
+            return outgrown;
+        }
+        return null;
+    }
+
+    private static void release(@Nullable final char[] outgrown) {
+        if (outgrown != null && outgrown.length != 0) {
+            Shredding.release(outgrown);
+        }
+    }
+
+    private void grow(final int minimumCapacity) {
+        final char[] outgrown = value;
+        value = grown(minimumCapacity);
+        release(outgrown);
+    }
+
+    /**
+     * A larger array holding the current contents.
+     */
+    @Nonnull
+    private char[] grown(final int minimumCapacity) {
+        if (minimumCapacity < 0 || MAX_CAPACITY < minimumCapacity) {
+            throw new OutOfMemoryError("a SecureCharBuilder cannot hold more than " + MAX_CAPACITY + " characters");
+        }
+
+        final int proposed = value.length < FAST_GROWTH_LIMIT ? value.length * 4 + 2 : value.length * 2 + 2;
+        final int newCapacity = (proposed < minimumCapacity || proposed < 0 || MAX_CAPACITY < proposed)
+                ? minimumCapacity
+                : proposed;
+        final char[] larger = new char[newCapacity];
+        System.arraycopy(value, 0, larger, 0, length);
+        return larger;
+    }
+}
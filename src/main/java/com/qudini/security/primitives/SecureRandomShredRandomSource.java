@@ -0,0 +1,49 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.security.SecureRandom;
+import java.util.Objects;
+
+/**
+ * Generates shredding data directly from a caller-provided {@link SecureRandom}.
+ */
+@ParametersAreNonnullByDefault
+final class SecureRandomShredRandomSource implements ShredRandomSource {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final SecureRandom random;
+
+    SecureRandomShredRandomSource(final SecureRandom random) {
+        this.random = Objects.requireNonNull(random);
+    }
+
+    @Override
+    public void nextBytes(final byte[] bytes, final int offset, final int length) {
+        ArrayKernels.checkRange(bytes.length, offset, length);
+
+        if (offset == 0 && length == bytes.length) {
+            random.nextBytes(bytes);
+            return;
+        }
+
+        final byte[] chunk = new byte[Math.min(length, CHUNK_SIZE)];
+        for (int position = offset, end = offset + length; position < end; position += chunk.length) {
+            random.nextBytes(chunk);
+            System.arraycopy(chunk, 0, bytes, position, Math.min(chunk.length, end - position));
+        }
+    }
+
+    @Override
+    public void nextChars(final char[] chars, final int offset, final int length) {
+        ArrayKernels.checkRange(chars.length, offset, length);
+
+        final byte[] chunk = new byte[Math.min(length, CHUNK_SIZE) * 2];
+        for (int position = offset, end = offset + length; position < end; position += chunk.length / 2) {
+            random.nextBytes(chunk);
+            for (int i = 0, count = Math.min(chunk.length / 2, end - position); i < count; ++i) {
+                chars[position + i] = (char) ((chunk[2 * i] << 8) | (chunk[2 * i + 1] & 0xFF));
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.qudini.security.primitives;
+
+/**
+ * The kinds of shredding operation reported to {@link ShreddingMetrics}, one per family of {@link Shredding}
+ * overloads.
+ */
+public enum ShredOperation {
+
+    BYTE_ARRAY,
+    CHAR_ARRAY,
+    STRING_BUILDER,
+
+    /**
+     * Heap, direct and memory-mapped byte buffers.
+     */
+    BYTE_BUFFER,
+    CHAR_BUFFER,
+
+    /**
+     * A file or a range of one, whether shredded by path or through a channel.
+     */
+    FILE,
+
+    /**
+     * A {@code shredAll} call, reported once for all of its secrets.
+     */
+    BATCH
+}
@@ -0,0 +1,88 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+
+/**
+ * How {@link Shredding} overwrites data. Cheaper policies suit short-lived buffers on hot paths; the multi-pass policy
+ * suits long-lived key material.
+ *
+ * @see Shredding#setDefaultPolicy(ShredPolicy)
+ */
+public final class ShredPolicy {
+
+    /**
+     * Overwrite with zeros only; runs at memory bandwidth.
+     */
+    public static final ShredPolicy ZERO = new ShredPolicy(true, false, 1);
+
+    /**
+     * Overwrite with one pass of random data only.
+     */
+    public static final ShredPolicy RANDOM = new ShredPolicy(false, true, 1);
+
+    /**
+     * Overwrite with zeros and then random data. This is the default.
+     */
+    public static final ShredPolicy ZERO_THEN_RANDOM = new ShredPolicy(true, true, 1);
+
+    private final boolean zero;
+    private final boolean random;
+    private final int passes;
+
+    private ShredPolicy(final boolean zero, final boolean random, final int passes) {
+        this.zero = zero;
+        this.random = random;
+        this.passes = passes;
+    }
+
+    /**
+     * Overwrite with zeros and then random data, {@code passes} times over.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static ShredPolicy multiPass(final int passes) {
+        if (passes < 1) {
+            throw new IllegalArgumentException("passes must be a positive number");
+        }
+        return passes == 1 ? ZERO_THEN_RANDOM : new ShredPolicy(true, true, passes);
+    }
+
+    boolean zeroes() {
+        return zero;
+    }
+
+    boolean randomises() {
+        return random;
+    }
+
+    int passes() {
+        return passes;
+    }
+
+    @Override
+    public boolean equals(final Object that) {
+        if (!(that instanceof ShredPolicy)) {
+            return false;
+        }
+        final ShredPolicy policy = (ShredPolicy) that;
+        return zero == policy.zero && random == policy.random && passes == policy.passes;
+    }
+
+    @Override
+    public int hashCode() {
+        return (passes << 2) | (zero ? 2 : 0) | (random ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        if (!random) {
+            return "ZERO";
+        } else if (!zero) {
+            return "RANDOM";
+        } else if (passes == 1) {
+            return "ZERO_THEN_RANDOM";
+        }
+        return "MULTI_PASS(" + passes + ")";
+    }
+}
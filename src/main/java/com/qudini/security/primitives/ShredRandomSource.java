@@ -0,0 +1,44 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.security.SecureRandom;
+
+/**
+ * Provides the random data {@link Shredding} writes over zeroed memory. Implementations must be safe to use from many
+ * threads at once, as a single source is shared by every shredding call in the JVM.
+ *
+ * @see Shredding#setRandomSource(ShredRandomSource)
+ */
+@ParametersAreNonnullByDefault
+public interface ShredRandomSource {
+
+    /**
+     * Overwrite {@code length} bytes of {@code bytes} starting at {@code offset} with random data.
+     */
+    void nextBytes(byte[] bytes, int offset, int length);
+
+    /**
+     * Overwrite {@code length} chars of {@code chars} starting at {@code offset} with random data.
+     */
+    void nextChars(char[] chars, int offset, int length);
+
+    /**
+     * The default source: a per-thread AES-CTR keystream seeded once from {@link SecureRandom}, and reseeded
+     * periodically. It produces random data in bulk without contending on a shared lock or paying for a new
+     * {@link SecureRandom} on every shred.
+     */
+    @Nonnull
+    static ShredRandomSource keystream() {
+        return KeystreamShredRandomSource.INSTANCE;
+    }
+
+    /**
+     * A source that draws directly from the provided {@link SecureRandom}. Slower than {@link #keystream()}, but
+     * useful where a specific provider is mandated.
+     */
+    @Nonnull
+    static ShredRandomSource of(final SecureRandom random) {
+        return new SecureRandomShredRandomSource(random);
+    }
+}
@@ -1,85 +1,865 @@
 package com.qudini.security.primitives;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.security.SecureRandom;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 @ParametersAreNonnullByDefault
 public final class Shredding {
 
+    private static final int BUILDER_CHUNK_SIZE = 1024;
+    private static final int BUFFER_CHUNK_SIZE = 8 * 1024;
+    private static final int FILE_CHUNK_SIZE = 1024 * 1024;
+    private static final int FILE_RANDOM_CHUNK_SIZE = 64 * 1024;
+
+    // Never written to; used as the source of bulk zeroing puts into buffers without backing arrays.
+    private static final byte[] ZERO_BYTES = new byte[BUFFER_CHUNK_SIZE];
+    private static final char[] ZERO_CHARS = new char[BUFFER_CHUNK_SIZE];
+
+    // Arrays at least this many elements long are split into segments and shredded across the fork-join pool.
+    private static final int PARALLEL_THRESHOLD = 4 * 1024 * 1024;
+    private static final int PARALLEL_SEGMENT_SIZE = 1024 * 1024;
+
+    private static volatile ShredRandomSource randomSource = ShredRandomSource.keystream();
+
+    private static volatile ShredPolicy defaultPolicy = ShredPolicy.ZERO_THEN_RANDOM;
+
+    @Nullable
+    private static volatile AsyncShredder asyncShredder;
+
+    @Nullable
+    private static volatile ShreddingMetrics metrics;
+
     private Shredding() {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Replace the source of random data used by every subsequent shredding operation. Defaults to
+     * {@link ShredRandomSource#keystream()}.
+     */
+    public static void setRandomSource(final ShredRandomSource source) {
+        randomSource = Objects.requireNonNull(source);
+    }
+
+    @Nonnull
+    public static ShredRandomSource getRandomSource() {
+        return randomSource;
+    }
+
+    /**
+     * Replace the policy used by every subsequent shredding operation that does not specify one. Defaults to
+     * {@link ShredPolicy#ZERO_THEN_RANDOM}.
+     */
+    public static void setDefaultPolicy(final ShredPolicy policy) {
+        defaultPolicy = Objects.requireNonNull(policy);
+    }
+
+    @Nonnull
+    public static ShredPolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    /**
+     * Hand the secrets this library discards internally, such as a closed {@link Passphrase}'s characters, to a
+     * background shredder rather than shredding them on the calling thread. Pass {@code null} to go back to shredding
+     * them inline. The public {@code shred} methods are always synchronous.
+     */
+    public static void setAsyncShredder(@Nullable final AsyncShredder shredder) {
+        asyncShredder = shredder;
+    }
+
+    @Nullable
+    public static AsyncShredder getAsyncShredder() {
+        return asyncShredder;
+    }
+
+    /**
+     * Report every subsequent shredding operation to {@code metrics}, such as a {@link ShreddingStatistics}. Pass
+     * {@code null}, the default, to stop reporting; shredding then does not even read the clock.
+     */
+    public static void setMetrics(@Nullable final ShreddingMetrics metrics) {
+        Shredding.metrics = metrics;
+    }
+
+    @Nullable
+    public static ShreddingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Shred a secret that nothing will read again, in the background if an async shredder is installed.
+     */
+    static void release(final char[] chars) {
+        final AsyncShredder shredder = asyncShredder;
+        if (shredder == null) {
+            shred(chars);
+        } else {
+            shredder.shred(chars);
+        }
+    }
+
+    /**
+     * @see #release(char[])
+     */
+    static void release(final byte[] bytes) {
+        final AsyncShredder shredder = asyncShredder;
+        if (shredder == null) {
+            shred(bytes);
+        } else {
+            shredder.shred(bytes);
+        }
+    }
+
     /**
      * Shreds an array of bytes. This overwrites mutable bytes with
-     * zeros and then random characters from a CSPRNG.
+     * zeros and then random bytes from a CSPRNG, or as the default policy specifies.
      * <p>
      * While this secures it in the context of the JVM, it does not make any
      * guarantees at the OS memory-management level, which is undoable without
      * low-level unsafe and undocumented JRE APIs.
      */
     public static void shred(final byte[] bytes) {
-        Objects.requireNonNull(bytes);
+        shred(bytes, defaultPolicy);
+    }
 
-        Arrays.fill(bytes, (byte) 0);
-        final int maxByte = Byte.MAX_VALUE;
-        final SecureRandom random = new SecureRandom();
-        for (int i = bytes.length - 1; 0 <= i; --i) {
+    /**
+     * Shreds an array of bytes with the specified policy.
+     *
+     * @see #shred(byte[])
+     */
+    public static void shred(final byte[] bytes, final ShredPolicy policy) {
+        Objects.requireNonNull(bytes);
+        Objects.requireNonNull(policy);
 
-            // Truncating to a byte directly from random.nextInt() would
-            // create a distribution with an uneven likelihood of
-            // Character.MAX_VALUE.
-            bytes[i] = (byte) (random.nextInt() % maxByte);
+        final ShreddingMetrics recorder = metrics;
+        final long start = recorder == null ? 0 : System.nanoTime();
+        shredRange(policy, randomSource, bytes, 0, bytes.length);
+        if (recorder != null) {
+            recorder.record(ShredOperation.BYTE_ARRAY, bytes.length, 0, System.nanoTime() - start);
         }
     }
 
     /**
      * Shreds an array of characters. This overwrites mutable chars with
-     * zeros and then random characters from a CSPRNG.
+     * zeros and then random characters from a CSPRNG, or as the default policy specifies.
      * <p>
      * While this secures it in the context of the JVM, it does not make any
      * guarantees at the OS memory-management level, which is undoable without
      * low-level unsafe and undocumented JRE APIs.
      */
     public static void shred(final char[] chars) {
+        shred(chars, defaultPolicy);
+    }
+
+    /**
+     * Shreds an array of characters with the specified policy.
+     *
+     * @see #shred(char[])
+     */
+    public static void shred(final char[] chars, final ShredPolicy policy) {
         Objects.requireNonNull(chars);
+        Objects.requireNonNull(policy);
 
-        Arrays.fill(chars, '\0');
-        final int maxChar = (int) Character.MAX_VALUE;
-        final SecureRandom random = new SecureRandom();
-        for (int i = chars.length - 1; 0 <= i; --i) {
+        final ShreddingMetrics recorder = metrics;
+        final long start = recorder == null ? 0 : System.nanoTime();
+        shredRange(policy, randomSource, chars, 0, chars.length);
+        if (recorder != null) {
+            recorder.record(ShredOperation.CHAR_ARRAY, 0, chars.length, System.nanoTime() - start);
+        }
+    }
 
-            // Truncating to a char directly from random.nextInt() would
-            // create a distribution with an uneven likelihood of
-            // Character.MAX_VALUE.
-            chars[i] = (char) (random.nextInt() % maxChar);
+    /**
+     * Shreds the characters of an array between {@code from}, inclusive, and {@code to}, exclusive.
+     */
+    static void shred(final char[] chars, final int from, final int to) {
+        if (from < 0 || to < from || chars.length < to) {
+            throw new IndexOutOfBoundsException();
+        }
+        final ShreddingMetrics recorder = metrics;
+        final long start = recorder == null ? 0 : System.nanoTime();
+        shredRange(defaultPolicy, randomSource, chars, from, to);
+        if (recorder != null) {
+            recorder.record(ShredOperation.CHAR_ARRAY, 0, to - from, System.nanoTime() - start);
         }
     }
 
     /**
      * Shreds a StringBuilder of characters. This overwrites mutable chars with
-     * zeros and then random characters from a CSPRNG.
+     * zeros and then random characters from a CSPRNG, or as the default policy specifies.
      * <p>
      * This only shreds it as well as the java.lang.StringBuilder#setCharAt method actually writes over the character in
      * memory.
      */
     public static void shred(final StringBuilder builder) {
+        shred(builder, defaultPolicy);
+    }
+
+    /**
+     * Shreds a StringBuilder of characters with the specified policy.
+     *
+     * @see #shred(StringBuilder)
+     */
+    public static void shred(final StringBuilder builder, final ShredPolicy policy) {
         Objects.requireNonNull(builder);
+        Objects.requireNonNull(policy);
+
+        final ShreddingMetrics recorder = metrics;
+        final long start = recorder == null ? 0 : System.nanoTime();
+        shredBuilder(builder, policy);
+        if (recorder != null) {
+            recorder.record(ShredOperation.STRING_BUILDER, 0, builder.length(), System.nanoTime() - start);
+        }
+    }
+
+    private static void shredBuilder(final StringBuilder builder, final ShredPolicy policy) {
+        final int length = builder.length();
+        final ShredRandomSource source = randomSource;
+        final char[] chunk = new char[policy.randomises() ? Math.min(length, BUILDER_CHUNK_SIZE) : 0];
+        for (int pass = policy.passes(); 0 < pass; --pass) {
+            if (policy.zeroes()) {
+                for (int i = length - 1; 0 <= i; --i) {
+                    builder.setCharAt(i, '\0');
+                }
+            }
+
+            // The builder's backing array cannot be reached, so draw random chars in chunks and copy them in.
+            if (policy.randomises()) {
+                for (int position = 0; position < length; position += chunk.length) {
+                    final int count = Math.min(chunk.length, length - position);
+                    source.nextChars(chunk, 0, count);
+                    for (int i = 0; i < count; ++i) {
+                        builder.setCharAt(position + i, chunk[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Shreds a byte buffer in place, covering its whole capacity regardless of its position and limit, which are left
+     * unchanged. Heap buffers are shredded through their backing array; direct buffers are overwritten with bulk puts,
+     * so their contents are never copied onto the heap.
+     *
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only.
+     */
+    public static void shred(final ByteBuffer buffer) {
+        shred(buffer, defaultPolicy);
+    }
+
+    /**
+     * Shreds a byte buffer in place with the specified policy.
+     *
+     * @see #shred(ByteBuffer)
+     */
+    public static void shred(final ByteBuffer buffer, final ShredPolicy policy) {
+        Objects.requireNonNull(buffer);
+        Objects.requireNonNull(policy);
+
+        final ShreddingMetrics recorder = metrics;
+        final long start = recorder == null ? 0 : System.nanoTime();
+        shredBuffer(buffer, policy);
+        if (recorder != null) {
+            recorder.record(ShredOperation.BYTE_BUFFER, buffer.capacity(), 0, System.nanoTime() - start);
+        }
+    }
+
+    private static void shredBuffer(final ByteBuffer buffer, final ShredPolicy policy) {
+        if (buffer.hasArray()) {
+            final int offset = buffer.arrayOffset();
+            shredRange(policy, randomSource, buffer.array(), offset, offset + buffer.capacity());
+            return;
+        }
+
+        final ShredRandomSource source = randomSource;
+        final ByteBuffer view = buffer.duplicate();
+        final byte[] chunk = new byte[policy.randomises() ? Math.min(view.capacity(), BUFFER_CHUNK_SIZE) : 0];
+        for (int pass = policy.passes(); 0 < pass; --pass) {
+
+            // Clear through Buffer, as the covariant ByteBuffer#clear overrides only exist from JDK 9.
+            if (policy.zeroes()) {
+                ((Buffer) view).clear();
+                while (view.hasRemaining()) {
+                    view.put(ZERO_BYTES, 0, Math.min(ZERO_BYTES.length, view.remaining()));
+                }
+            }
+            if (policy.randomises()) {
+                ((Buffer) view).clear();
+                while (view.hasRemaining()) {
+                    final int count = Math.min(chunk.length, view.remaining());
+                    source.nextBytes(chunk, 0, count);
+                    view.put(chunk, 0, count);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shreds a memory-mapped buffer in place as {@link #shred(ByteBuffer)} does, and then forces the shredded
+     * contents out to the underlying file.
+     */
+    public static void shred(final MappedByteBuffer buffer) {
+        shred(buffer, defaultPolicy);
+    }
+
+    /**
+     * Shreds a memory-mapped buffer in place with the specified policy, and then forces the shredded contents out to
+     * the underlying file.
+     */
+    public static void shred(final MappedByteBuffer buffer, final ShredPolicy policy) {
+        Objects.requireNonNull(buffer);
+        Objects.requireNonNull(policy);
+
+        final ShreddingMetrics recorder = metrics;
+        final long start = recorder == null ? 0 : System.nanoTime();
+        shredBuffer(buffer, policy);
+        buffer.force();
+        if (recorder != null) {
+            recorder.record(ShredOperation.BYTE_BUFFER, buffer.capacity(), 0, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Shreds a char buffer in place, covering its whole capacity regardless of its position and limit, which are left
+     * unchanged.
+     *
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only, which includes buffers wrapping a
+     *                                          {@link CharSequence}.
+     * @see #shred(ByteBuffer)
+     */
+    public static void shred(final CharBuffer buffer) {
+        shred(buffer, defaultPolicy);
+    }
+
+    /**
+     * Shreds a char buffer in place with the specified policy.
+     *
+     * @see #shred(CharBuffer)
+     */
+    public static void shred(final CharBuffer buffer, final ShredPolicy policy) {
+        Objects.requireNonNull(buffer);
+        Objects.requireNonNull(policy);
+
+        final ShreddingMetrics recorder = metrics;
+        final long start = recorder == null ? 0 : System.nanoTime();
+        shredBuffer(buffer, policy);
+        if (recorder != null) {
+            recorder.record(ShredOperation.CHAR_BUFFER, 0, buffer.capacity(), System.nanoTime() - start);
+        }
+    }
+
+    private static void shredBuffer(final CharBuffer buffer, final ShredPolicy policy) {
+        if (buffer.hasArray()) {
+            final int offset = buffer.arrayOffset();
+            shredRange(policy, randomSource, buffer.array(), offset, offset + buffer.capacity());
+            return;
+        }
+
+        final ShredRandomSource source = randomSource;
+        final CharBuffer view = buffer.duplicate();
+        final char[] chunk = new char[policy.randomises() ? Math.min(view.capacity(), BUFFER_CHUNK_SIZE) : 0];
+        for (int pass = policy.passes(); 0 < pass; --pass) {
+            if (policy.zeroes()) {
+                ((Buffer) view).clear();
+                while (view.hasRemaining()) {
+                    view.put(ZERO_CHARS, 0, Math.min(ZERO_CHARS.length, view.remaining()));
+                }
+            }
+            if (policy.randomises()) {
+                ((Buffer) view).clear();
+                while (view.hasRemaining()) {
+                    final int count = Math.min(chunk.length, view.remaining());
+                    source.nextChars(chunk, 0, count);
+                    view.put(chunk, 0, count);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shreds a file's contents in place, overwriting every byte with the default policy and forcing each pass out to
+     * storage before the next, then truncating or deleting the file as the options specify.
+     * <p>
+     * The file is overwritten a chunk at a time and never read, so files of any size can be shredded without loading
+     * them onto the heap. This cannot reach copies the file system or storage device keeps elsewhere, such as in
+     * journals, snapshots or remapped flash blocks.
+     */
+    public static void shred(final Path path, final FileShredOption... options) throws IOException {
+        shred(path, defaultPolicy, options);
+    }
+
+    /**
+     * Shreds a file's contents in place with the specified policy.
+     *
+     * @see #shred(Path, FileShredOption...)
+     */
+    public static void shred(
+            final Path path,
+            final ShredPolicy policy,
+            final FileShredOption... options
+    ) throws IOException {
+        Objects.requireNonNull(path);
+        Objects.requireNonNull(policy);
+        final Set<FileShredOption> optionSet = EnumSet.noneOf(FileShredOption.class);
+        for (final FileShredOption option : options) {
+            optionSet.add(Objects.requireNonNull(option));
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            shred(channel, 0, channel.size(), policy);
+            if (optionSet.contains(FileShredOption.TRUNCATE)) {
+                channel.truncate(0);
+                channel.force(true);
+            }
+        }
+        if (optionSet.contains(FileShredOption.DELETE)) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Shreds {@code length} bytes of a file starting at {@code offset}, overwriting them with the default policy and
+     * forcing each pass out to storage before the next. The range must lie within the file. Positional writes are used,
+     * so the channel's position is left unchanged.
+     *
+     * @throws IndexOutOfBoundsException if the range does not lie within the file.
+     * @see #shred(Path, FileShredOption...)
+     */
+    public static void shred(final FileChannel channel, final long offset, final long length) throws IOException {
+        shred(channel, offset, length, defaultPolicy);
+    }
+
+    /**
+     * Shreds a range of a file with the specified policy.
+     *
+     * @see #shred(FileChannel, long, long)
+     */
+    public static void shred(
+            final FileChannel channel,
+            final long offset,
+            final long length,
+            final ShredPolicy policy
+    ) throws IOException {
+        Objects.requireNonNull(channel);
+        Objects.requireNonNull(policy);
+        final long size = channel.size();
+        if (offset < 0 || length < 0 || size - offset < length) {
+            throw new IndexOutOfBoundsException(
+                    "offset " + offset + " and length " + length + " are out of bounds for a file of " + size + " bytes"
+            );
+        }
+        if (length == 0) {
+            return;
+        }
+
+        final ShreddingMetrics recorder = metrics;
+        final long start = recorder == null ? 0 : System.nanoTime();
+        shredFileRange(channel, offset, length, policy);
+        if (recorder != null) {
+            recorder.record(ShredOperation.FILE, length, 0, System.nanoTime() - start);
+        }
+    }
+
+    private static void shredFileRange(
+            final FileChannel channel,
+            final long offset,
+            final long length,
+            final ShredPolicy policy
+    ) throws IOException {
+        final ShredRandomSource source = randomSource;
+        final int chunkSize = (int) Math.min(length, FILE_CHUNK_SIZE);
+
+        // Random data is drawn straight into a pooled heap array and written from it. The JDK copies heap writes
+        // through a direct buffer it caches per thread, so no direct memory is allocated per call: JDK 8 only frees it
+        // at a garbage collection, and calls System.gc() when it runs short.
+        final SecretBufferPool pool = SecretBufferPool.shared();
+        final byte[] random = policy.randomises()
+                ? pool.acquireBytes((int) Math.min(length, FILE_RANDOM_CHUNK_SIZE))
+                : null;
+        final ByteBuffer randomBuffer = random == null ? null : ByteBuffer.wrap(random);
+        final long end = offset + length;
+        try {
+            for (int pass = policy.passes(); 0 < pass; --pass) {
+
+                // Force after every pass, or the page cache would merge the passes into a single write of the last.
+                if (policy.zeroes()) {
+                    for (long position = offset; position < end; position += chunkSize) {
+                        final ByteBuffer zeros = FileZeros.BUFFER.duplicate();
+                        ((Buffer) zeros).limit((int) Math.min(chunkSize, end - position));
+                        writeFully(channel, zeros, position);
+                    }
+                    channel.force(false);
+                }
+                if (policy.randomises()) {
+                    for (long position = offset; position < end; position += random.length) {
+                        final int count = (int) Math.min(random.length, end - position);
+                        source.nextBytes(random, 0, count);
+                        ((Buffer) randomBuffer).clear().limit(count);
+                        writeFully(channel, randomBuffer, position);
+                    }
+                    channel.force(false);
+                }
+            }
+        } finally {
+            if (random != null) {
+                pool.recycle(random);
+            }
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        for (long written = 0; buffer.hasRemaining(); ) {
+            written += channel.write(buffer, position + written);
+        }
+    }
+
+    /**
+     * Shreds several byte arrays at once, as {@link #shred(byte[])} does for one. Small arrays share one draw of random
+     * data, which is much cheaper than drawing it for each in turn; arrays of several MiB are split into segments and
+     * shredded in parallel on the common fork-join pool.
+     */
+    public static void shredAll(final byte[]... arrays) {
+        shredAll(arrays, arrays.length, defaultPolicy);
+    }
+
+    /**
+     * Shreds several char arrays at once.
+     *
+     * @see #shredAll(byte[]...)
+     */
+    public static void shredAll(final char[]... arrays) {
+        shredAll(arrays, arrays.length, defaultPolicy);
+    }
+
+    /**
+     * Shreds several StringBuilders at once.
+     *
+     * @see #shred(StringBuilder)
+     */
+    public static void shredAll(final StringBuilder... builders) {
+        shredAll(builders, builders.length, defaultPolicy);
+    }
+
+    /**
+     * Shreds a mix of {@code byte[]}, {@code char[]} and {@link StringBuilder} secrets at once.
+     *
+     * @throws IllegalArgumentException if any element is of another type; no element is shredded in that case.
+     * @see #shredAll(byte[]...)
+     */
+    public static void shredAll(final Iterable<?> secrets) {
+        shredAll(secrets, defaultPolicy);
+    }
+
+    /**
+     * Shreds a mix of {@code byte[]}, {@code char[]} and {@link StringBuilder} secrets at once with the specified
+     * policy.
+     *
+     * @see #shredAll(Iterable)
+     */
+    public static void shredAll(final Iterable<?> secrets, final ShredPolicy policy) {
+        Objects.requireNonNull(policy);
+
+        // Copied as they are checked, so an iterable that can only be walked once is still shredded in full.
+        Object[] copied = new Object[secrets instanceof Collection ? ((Collection<?>) secrets).size() : 8];
+        int count = 0;
+        for (final Object secret : secrets) {
+            if (count == copied.length) {
+                copied = Arrays.copyOf(copied, count * 2 + 1);
+            }
+            copied[count++] = secret;
+        }
+        shredAll(copied, count, policy);
+    }
 
-        for (int i = builder.length() - 1; 0 <= i; --i) {
-            builder.setCharAt(i, '\0');
+    /**
+     * Shreds the first {@code count} elements of {@code secrets}, which must each be a {@code byte[]}, {@code char[]}
+     * or {@link StringBuilder}; the array itself is left as it is.
+     *
+     * @throws IllegalArgumentException if any element is of another type; no element is shredded in that case.
+     */
+    static void shredAll(final Object[] secrets, final int count, final ShredPolicy policy) {
+        Objects.requireNonNull(policy);
+        long byteCount = 0;
+        long arrayCharCount = 0;
+        long builderCharCount = 0;
+        for (int i = 0; i < count; ++i) {
+            final Object secret = Objects.requireNonNull(secrets[i]);
+            if (secret instanceof byte[]) {
+                byteCount += ((byte[]) secret).length;
+            } else if (secret instanceof char[]) {
+                arrayCharCount += ((char[]) secret).length;
+            } else if (secret instanceof StringBuilder) {
+                builderCharCount += ((StringBuilder) secret).length();
+            } else {
+                throw new IllegalArgumentException("cannot shred an instance of " + secret.getClass().getName());
+            }
+        }
+
+        final ShreddingMetrics recorder = metrics;
+        final long start = recorder == null ? 0 : System.nanoTime();
+        final long arrayBytes = byteCount + 2 * arrayCharCount;
+        if (policy.randomises() && arrayBytes <= BUFFER_CHUNK_SIZE) {
+            final ShredRandomSource source = randomSource;
+            try {
+                shredSmallSecrets(secrets, count, (int) arrayBytes, policy, source);
+            } catch (final Throwable batchFailure) {
+                shredOneByOne(secrets, count, policy, source);
+            }
+        } else {
+            shredEach(secrets, count, policy);
+        }
+        if (recorder != null) {
+            recorder.record(ShredOperation.BATCH, byteCount, arrayCharCount + builderCharCount, System.nanoTime() - start);
+        }
+    }
+
+    private static void shredEach(final Object[] secrets, final int count, final ShredPolicy policy) {
+        final ShredRandomSource source = randomSource;
+        final boolean parallel = 1 < ForkJoinPool.getCommonPoolParallelism();
+        final List<ForkJoinTask<?>> largeSecrets = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            final Object secret = secrets[i];
+            if (secret instanceof byte[]) {
+                final byte[] bytes = (byte[]) secret;
+                if (parallel && PARALLEL_THRESHOLD <= bytes.length) {
+                    largeSecrets.add(new SegmentShredder(
+                            (from, to) -> shredRange(policy, source, bytes, from, to),
+                            0,
+                            bytes.length
+                    ));
+                } else {
+                    shredRange(policy, source, bytes, 0, bytes.length);
+                }
+            } else if (secret instanceof char[]) {
+                final char[] chars = (char[]) secret;
+                if (parallel && PARALLEL_THRESHOLD <= chars.length) {
+                    largeSecrets.add(new SegmentShredder(
+                            (from, to) -> shredRange(policy, source, chars, from, to),
+                            0,
+                            chars.length
+                    ));
+                } else {
+                    shredRange(policy, source, chars, 0, chars.length);
+                }
+            } else {
+                shredBuilder((StringBuilder) secret, policy);
+            }
+        }
+
+        if (!largeSecrets.isEmpty()) {
+            ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(largeSecrets);
+                }
+            });
+        }
+    }
+
+    /**
+     * Shreds secrets whose arrays come to at most one chunk in total, drawing each pass's random data for all of them
+     * from the source at once. Per-call overhead is most of the cost of shredding a small array, so a request's worth
+     * of secrets is much cheaper to shred this way than one by one. Every array is zeroed before each draw, as
+     * {@link #shred(byte[])} does, so a source that throws still leaves them zeroed. The random data is drawn into a
+     * pooled array, which only ever holds what the secrets are overwritten with, so it goes back to the pool as it is.
+     */
+    private static void shredSmallSecrets(
+            final Object[] secrets,
+            final int count,
+            final int arrayBytes,
+            final ShredPolicy policy,
+            final ShredRandomSource source
+    ) {
+        final SecretBufferPool pool = SecretBufferPool.shared();
+        final byte[] random = pool.acquireBytes(arrayBytes);
+        try {
+            for (int pass = policy.passes(); 0 < pass; --pass) {
+                if (policy.zeroes()) {
+                    for (int i = 0; i < count; ++i) {
+                        final Object secret = secrets[i];
+                        if (secret instanceof byte[]) {
+                            Arrays.fill((byte[]) secret, (byte) 0);
+                        } else if (secret instanceof char[]) {
+                            Arrays.fill((char[]) secret, '\0');
+                        }
+                    }
+                }
+
+                source.nextBytes(random, 0, arrayBytes);
+                int position = 0;
+                for (int i = 0; i < count; ++i) {
+                    final Object secret = secrets[i];
+                    if (secret instanceof byte[]) {
+                        final byte[] bytes = (byte[]) secret;
+                        System.arraycopy(random, position, bytes, 0, bytes.length);
+                        position += bytes.length;
+                    } else if (secret instanceof char[]) {
+                        final char[] chars = (char[]) secret;
+                        ArrayKernels.bytesToChars(random, position, chars, 0, chars.length);
+                        position += 2 * chars.length;
+                    }
+                }
+            }
+        } finally {
+            pool.recycle(random);
+        }
+
+        for (int i = 0; i < count; ++i) {
+            if (secrets[i] instanceof StringBuilder) {
+                shredBuilder((StringBuilder) secrets[i], policy);
+            }
+        }
+    }
+
+    /**
+     * Shreds each secret on its own after shredding them together failed, so one that cannot be shredded does not
+     * leave the rest intact. Rethrows the first failure, with any later ones suppressed.
+     */
+    private static void shredOneByOne(
+            final Object[] secrets,
+            final int count,
+            final ShredPolicy policy,
+            final ShredRandomSource source
+    ) {
+        Throwable failure = null;
+        for (int i = 0; i < count; ++i) {
+            final Object secret = secrets[i];
+            try {
+                if (secret instanceof byte[]) {
+                    shredRange(policy, source, (byte[]) secret, 0, ((byte[]) secret).length);
+                } else if (secret instanceof char[]) {
+                    shredRange(policy, source, (char[]) secret, 0, ((char[]) secret).length);
+                } else {
+                    shredBuilder((StringBuilder) secret, policy);
+                }
+            } catch (final Throwable throwable) {
+                failure = addFailure(failure, throwable);
+            }
+        }
+        rethrow(failure);
+    }
+
+    /**
+     * The first failure, with {@code throwable} added to it as suppressed, or {@code throwable} if it is the first.
+     */
+    @Nonnull
+    static Throwable addFailure(@Nullable final Throwable failure, final Throwable throwable) {
+        if (failure == null) {
+            return throwable;
+        }
+        failure.addSuppressed(throwable);
+        return failure;
+    }
+
+    /**
+     * Rethrow a failure caught while shredding, if there was one. Shredding only throws unchecked exceptions, so
+     * anything else is wrapped.
+     */
+    static void rethrow(@Nullable final Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
         }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
 
-        final int maxChar = (int) Character.MAX_VALUE;
-        final SecureRandom random = new SecureRandom();
-        for (int i = builder.length() - 1; 0 <= i; --i) {
+    private static void shredRange(
+            final ShredPolicy policy,
+            final ShredRandomSource source,
+            final byte[] bytes,
+            final int from,
+            final int to
+    ) {
+        for (int pass = policy.passes(); 0 < pass; --pass) {
+            if (policy.zeroes()) {
+                Arrays.fill(bytes, from, to, (byte) 0);
+            }
+            if (policy.randomises()) {
+                source.nextBytes(bytes, from, to - from);
+            }
+        }
+    }
+
+    private static void shredRange(
+            final ShredPolicy policy,
+            final ShredRandomSource source,
+            final char[] chars,
+            final int from,
+            final int to
+    ) {
+        for (int pass = policy.passes(); 0 < pass; --pass) {
+            if (policy.zeroes()) {
+                Arrays.fill(chars, from, to, '\0');
+            }
+            if (policy.randomises()) {
+                source.nextChars(chars, from, to - from);
+            }
+        }
+    }
+
+    /**
+     * Holds the zeros written over files, so the direct memory is only allocated once a file is first shredded.
+     */
+    private static final class FileZeros {
+
+        // Never written to; each write takes its own duplicate, so threads do not share a position.
+        static final ByteBuffer BUFFER = ByteBuffer.allocateDirect(FILE_CHUNK_SIZE).asReadOnlyBuffer();
+    }
+
+    private interface RangeShredder {
+        void shred(int from, int to);
+    }
+
+    /**
+     * Splits a range of an array in halves until each piece is at most one segment, shredding the pieces in parallel.
+     */
+    private static final class SegmentShredder extends RecursiveAction {
+
+        private final RangeShredder shredder;
+        private final int from;
+        private final int to;
+
+        SegmentShredder(final RangeShredder shredder, final int from, final int to) {
+            this.shredder = shredder;
+            this.from = from;
+            this.to = to;
+        }
 
-            // Truncating to a char directly from random.nextInt() would
-            // create a distribution with an uneven likelihood of
-            // Character.MAX_VALUE.
-            builder.setCharAt(i, (char) (random.nextInt() % maxChar));
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_SEGMENT_SIZE) {
+                shredder.shred(from, to);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(
+                    new SegmentShredder(shredder, from, middle),
+                    new SegmentShredder(shredder, middle, to)
+            );
         }
     }
 }
@@ -0,0 +1,21 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Receives a report of every shredding operation once it completes. Implementations are called on the shredding
+ * thread, from many threads at once, so must be thread-safe and cheap.
+ *
+ * @see Shredding#setMetrics(ShreddingMetrics)
+ * @see ShreddingStatistics
+ */
+@ParametersAreNonnullByDefault
+@FunctionalInterface
+public interface ShreddingMetrics {
+
+    /**
+     * Record one operation that shredded {@code bytes} bytes and {@code chars} chars in {@code nanos} nanoseconds.
+     * Sizes count each element once however many passes the policy makes.
+     */
+    void record(ShredOperation operation, long bytes, long chars, long nanos);
+}
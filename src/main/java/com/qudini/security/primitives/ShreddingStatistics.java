@@ -0,0 +1,206 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Accumulates shredding calls, sizes and time spent per {@link ShredOperation}, with a latency histogram of
+ * power-of-two buckets per operation. Counters are {@link LongAdder}s, so recording from many threads at once does not
+ * contend. Read the totals through the getters here, or over JMX once {@link #registerMBean()} is called:
+ * <pre>{@code
+ * final ShreddingStatistics statistics = ShreddingStatistics.create();
+ * statistics.registerMBean();
+ * Shredding.setMetrics(statistics);
+ * }</pre>
+ */
+@ParametersAreNonnullByDefault
+public final class ShreddingStatistics implements ShreddingMetrics, ShreddingStatisticsMXBean {
+
+    private static final String OBJECT_NAME = "com.qudini.security.primitives:type=ShreddingStatistics";
+
+    // Bucket 0 holds durations of 0 ns; bucket i holds durations from 2^(i - 1) ns up to 2^i ns.
+    private static final int BUCKETS = Long.SIZE;
+
+    private static final ShredOperation[] OPERATIONS = ShredOperation.values();
+
+    private final Counters[] counters = new Counters[OPERATIONS.length];
+
+    private ShreddingStatistics() {
+        for (int i = 0; i < counters.length; ++i) {
+            counters[i] = new Counters();
+        }
+    }
+
+    @Nonnull
+    @CheckReturnValue
+    public static ShreddingStatistics create() {
+        return new ShreddingStatistics();
+    }
+
+    /**
+     * Register these statistics with the platform MBean server under
+     * {@code com.qudini.security.primitives:type=ShreddingStatistics}.
+     *
+     * @return the name they were registered under.
+     */
+    @Nonnull
+    public ObjectName registerMBean() throws JMException {
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        return name;
+    }
+
+    @Override
+    public void record(final ShredOperation operation, final long bytes, final long chars, final long nanos) {
+        final Counters operationCounters = counters[operation.ordinal()];
+        operationCounters.calls.increment();
+        operationCounters.bytes.add(bytes);
+        operationCounters.chars.add(chars);
+        operationCounters.nanos.add(nanos);
+        operationCounters.latency[Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, nanos))].increment();
+    }
+
+    @CheckReturnValue
+    public long getCallCount(final ShredOperation operation) {
+        return counters[operation.ordinal()].calls.sum();
+    }
+
+    @CheckReturnValue
+    public long getByteCount(final ShredOperation operation) {
+        return counters[operation.ordinal()].bytes.sum();
+    }
+
+    @CheckReturnValue
+    public long getCharCount(final ShredOperation operation) {
+        return counters[operation.ordinal()].chars.sum();
+    }
+
+    @CheckReturnValue
+    public long getNanosSpent(final ShredOperation operation) {
+        return counters[operation.ordinal()].nanos.sum();
+    }
+
+    /**
+     * The number of calls to an operation in each latency bucket. Bucket 0 counts calls that took no measurable time;
+     * bucket {@code i} counts calls that took from 2<sup>i - 1</sup> ns up to 2<sup>i</sup> ns.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public long[] getLatencyHistogram(final ShredOperation operation) {
+        final LongAdder[] latency = counters[operation.ordinal()].latency;
+        final long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i) {
+            histogram[i] = latency[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * The duration that {@code percentile} percent of calls to an operation completed within, rounded up to a power of
+     * two nanoseconds, or zero if it has not been called.
+     */
+    @CheckReturnValue
+    public long getLatencyNanosAtPercentile(final ShredOperation operation, final double percentile) {
+        if (!(0 <= percentile && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+
+        final long[] histogram = getLatencyHistogram(operation);
+        long total = 0;
+        for (final long count : histogram) {
+            total += count;
+        }
+        final long threshold = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += histogram[i];
+            if (0 < seen && threshold <= seen) {
+                return i == 0 ? 0 : (i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i);
+            }
+        }
+        return 0;
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Long> getCallCounts() {
+        return byOperation(this::getCallCount);
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Long> getByteCounts() {
+        return byOperation(this::getByteCount);
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Long> getCharCounts() {
+        return byOperation(this::getCharCount);
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Long> getNanosSpent() {
+        return byOperation(this::getNanosSpent);
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Long> getMedianLatencyNanos() {
+        return byOperation(operation -> getLatencyNanosAtPercentile(operation, 50));
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Long> getP99LatencyNanos() {
+        return byOperation(operation -> getLatencyNanosAtPercentile(operation, 99));
+    }
+
+    /**
+     * Set every total back to zero. Operations recorded while resetting may be partly lost.
+     */
+    @Override
+    public void reset() {
+        for (final Counters operationCounters : counters) {
+            operationCounters.calls.reset();
+            operationCounters.bytes.reset();
+            operationCounters.chars.reset();
+            operationCounters.nanos.reset();
+            for (final LongAdder bucket : operationCounters.latency) {
+                bucket.reset();
+            }
+        }
+    }
+
+    private static Map<String, Long> byOperation(final ToLongFunction<ShredOperation> total) {
+        final Map<String, Long> totals = new LinkedHashMap<>();
+        for (final ShredOperation operation : OPERATIONS) {
+            totals.put(operation.name(), total.applyAsLong(operation));
+        }
+        return totals;
+    }
+
+    private static final class Counters {
+
+        final LongAdder calls = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder chars = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder[] latency = new LongAdder[BUCKETS];
+
+        Counters() {
+            for (int i = 0; i < BUCKETS; ++i) {
+                latency[i] = new LongAdder();
+            }
+        }
+    }
+}
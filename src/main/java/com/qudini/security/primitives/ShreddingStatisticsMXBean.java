@@ -0,0 +1,30 @@
+package com.qudini.security.primitives;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link ShreddingStatistics}. Every attribute maps {@link ShredOperation} names to totals since the
+ * statistics were created or last reset.
+ */
+public interface ShreddingStatisticsMXBean {
+
+    Map<String, Long> getCallCounts();
+
+    Map<String, Long> getByteCounts();
+
+    Map<String, Long> getCharCounts();
+
+    Map<String, Long> getNanosSpent();
+
+    /**
+     * The median duration of each operation, rounded up to a power of two nanoseconds.
+     */
+    Map<String, Long> getMedianLatencyNanos();
+
+    /**
+     * The 99th-percentile duration of each operation, rounded up to a power of two nanoseconds.
+     */
+    Map<String, Long> getP99LatencyNanos();
+
+    void reset();
+}
@@ -0,0 +1,137 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timer wheel run by one daemon thread, for firing many short timeouts without a thread or a heap entry each.
+ * Timeouts are queued by any thread and moved into the wheel's buckets by the worker, which owns them. Each tick the
+ * worker fires every timeout in the current bucket whose deadline has passed; timeouts more than one turn of the wheel
+ * away stay in their bucket until a later turn. Tasks therefore run up to one tick late, never early.
+ * <p>
+ * Tasks run on the wheel's thread, so they must be short. Anything a task throws, even an {@link Error}, is passed to
+ * the thread's uncaught exception handler, and the wheel carries on.
+ */
+@ParametersAreNonnullByDefault
+final class TimerWheel {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // A power of two, so a tick's bucket is a mask away.
+    private static final int BUCKETS = 512;
+
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long origin = System.nanoTime();
+
+    // Only accessed by the worker thread.
+    private final Timeout[] buckets = new Timeout[BUCKETS];
+    private long processedTick;
+    private int pending;
+
+    private volatile boolean idle;
+
+    private TimerWheel() {
+        this.worker = new Thread(this::run, "timer-wheel");
+        worker.setDaemon(true);
+    }
+
+    @Nonnull
+    static TimerWheel shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Run a task once {@link System#nanoTime()} has reached the deadline.
+     */
+    void schedule(final long deadlineNanos, final Runnable task) {
+        incoming.add(new Timeout(deadlineNanos, task));
+        if (idle) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            for (Timeout timeout; (timeout = incoming.poll()) != null; ) {
+                final long tick = Math.max(processedTick + 1, ceilingTick(timeout.deadlineNanos));
+                final int bucket = (int) (tick & (BUCKETS - 1));
+                timeout.next = buckets[bucket];
+                buckets[bucket] = timeout;
+                ++pending;
+            }
+
+            final long now = System.nanoTime();
+            final long currentTick = (now - origin) / TICK_NANOS;
+
+            // After a stall of more than a turn, every bucket is due, but only needs visiting once.
+            for (long tick = Math.max(processedTick + 1, currentTick - BUCKETS + 1); tick <= currentTick; ++tick) {
+                fire((int) (tick & (BUCKETS - 1)), now);
+            }
+            processedTick = Math.max(processedTick, currentTick);
+
+            if (pending == 0) {
+                idle = true;
+                if (incoming.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+            } else if (incoming.isEmpty()) {
+                LockSupport.parkNanos(this, origin + (processedTick + 1) * TICK_NANOS - System.nanoTime());
+            }
+        }
+    }
+
+    private void fire(final int bucket, final long now) {
+        Timeout kept = null;
+        for (Timeout timeout = buckets[bucket], next; timeout != null; timeout = next) {
+            next = timeout.next;
+            if (timeout.deadlineNanos - now <= 0) {
+                --pending;
+                try {
+                    timeout.task.run();
+                } catch (final Throwable throwable) {
+                    // One failing task must not stop the rest from firing, nor kill the only thread that fires them,
+                    // so even an Error is only reported, as if it had been uncaught.
+                    worker.getUncaughtExceptionHandler().uncaughtException(worker, throwable);
+                }
+            } else {
+                timeout.next = kept;
+                kept = timeout;
+            }
+        }
+        buckets[bucket] = kept;
+    }
+
+    private long ceilingTick(final long deadlineNanos) {
+        return (deadlineNanos - origin + TICK_NANOS - 1) / TICK_NANOS;
+    }
+
+    private static final class Timeout {
+
+        final long deadlineNanos;
+        final Runnable task;
+
+        @Nullable
+        Timeout next;
+
+        Timeout(final long deadlineNanos, final Runnable task) {
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+        }
+    }
+
+    private static final class Shared {
+
+        static final TimerWheel INSTANCE = new TimerWheel();
+
+        static {
+            INSTANCE.worker.start();
+        }
+    }
+}
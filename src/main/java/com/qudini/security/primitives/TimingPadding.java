@@ -0,0 +1,195 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pads an operation out to a wall-clock deadline, so that how long the operation itself took cannot be observed; for
+ * example, to answer every authentication attempt after the same fixed time. Unlike
+ * {@link ConstantTimeOperations#nop(long)}, whose cost per iteration depends on the CPU, JIT tier and frequency
+ * scaling, the deadline is measured against {@link System#nanoTime()}:
+ * <pre>{@code
+ * final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(250);
+ * final boolean authenticated = authenticate(request);
+ * TimingPadding.padUntil(deadline);
+ * }</pre>
+ * The thread parks for most of the wait, so padding costs little CPU, and only spins for the last few microseconds,
+ * as parking can oversleep. How far parking oversleeps and how long a spin iteration takes are calibrated when this
+ * class loads, and then refined from every wait it performs anyway, so they follow changes in load and clock speed at
+ * no extra cost. Samples are capped at a few times the calibrated values, so that one long pause, such as a garbage
+ * collection while parked or a preempted spin, cannot throw an estimate off for long; and a wait too short to refine an
+ * estimate moves it back towards its calibrated value instead.
+ * <p>
+ * An interrupt does not cut padding short; the thread's interrupt status is kept for the caller to act on afterwards.
+ */
+@ParametersAreNonnullByDefault
+public final class TimingPadding {
+
+    // Always spin for at least this long, to absorb the error in the oversleep estimate.
+    private static final long MIN_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(2);
+
+    // How long to spin between reads of the clock.
+    private static final long SPIN_CHECK_NANOS = 500;
+
+    // Estimates move an eighth of the way towards each new sample.
+    private static final int SMOOTHING_SHIFT = 3;
+
+    private static final int CALIBRATION_ROUNDS = 8;
+    private static final long CALIBRATION_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+    private static final long CALIBRATION_ITERATIONS = 10_000;
+
+    // Spin samples shorter than this are mostly the cost of reading the clock, so they are not recorded.
+    private static final long MIN_SPIN_SAMPLE_ITERATIONS = 64;
+
+    // Samples are capped at this many times the calibrated value, or for oversleeping, the minimum spin if larger.
+    private static final int MAX_SAMPLE_FACTOR = 8;
+
+    // Written once, while the class initialises.
+    private static long calibratedParkOversleepNanos;
+    private static long calibratedPicosPerIteration;
+
+    private static volatile long parkOversleepNanos;
+    private static volatile long picosPerIteration;
+
+    // Written so the spin loop's result is used.
+    @SuppressWarnings("unused")
+    private static volatile byte sink;
+
+    static {
+        calibrate();
+    }
+
+    private TimingPadding() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Wait until {@link System#nanoTime()} reaches the deadline. Returns at once if it already has.
+     */
+    public static void padUntil(final long deadlineNanos) {
+        boolean interrupted = false;
+        boolean parked = false;
+        boolean spun = false;
+        boolean sampledSpin = false;
+        long now = System.nanoTime();
+
+        for (long slack; deadlineNanos - now > (slack = parkOversleepNanos + MIN_SPIN_NANOS); ) {
+            final long requested = deadlineNanos - now - slack;
+            LockSupport.parkNanos(requested);
+            final long woken = System.nanoTime();
+            parked = true;
+
+            // An interrupted thread wakes at once, which says nothing about oversleeping.
+            if (Thread.interrupted()) {
+                interrupted = true;
+            } else {
+                sampleParkOversleep(woken - now - requested);
+            }
+            now = woken;
+        }
+
+        for (long remaining; (remaining = deadlineNanos - now) > 0; ) {
+            final long iterations = Math.max(1, Math.min(remaining, SPIN_CHECK_NANOS) * 1000 / picosPerIteration);
+            sink = ConstantTimeOperations.nop(iterations);
+            final long spunAt = System.nanoTime();
+            spun = true;
+
+            if (MIN_SPIN_SAMPLE_ITERATIONS <= iterations) {
+                samplePicosPerIteration((spunAt - now) * 1000 / iterations);
+                sampledSpin = true;
+            }
+            now = spunAt;
+        }
+
+        // Estimates that have grown too large to be refined by the waits they govern decay instead.
+        if (spun && !parked) {
+            parkOversleepNanos = smooth(parkOversleepNanos, calibratedParkOversleepNanos);
+        }
+        if (spun && !sampledSpin) {
+            picosPerIteration = Math.max(1, smooth(picosPerIteration, calibratedPicosPerIteration));
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait for the given duration from now.
+     *
+     * @throws IllegalArgumentException if the duration is negative.
+     */
+    public static void padFor(final Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("duration must not be negative");
+        }
+        padUntil(System.nanoTime() + duration.toNanos());
+    }
+
+    /**
+     * The current estimate of how far parking a thread oversleeps.
+     */
+    @CheckReturnValue
+    static long getParkOversleepNanos() {
+        return parkOversleepNanos;
+    }
+
+    /**
+     * The current estimate of how long one iteration of {@link ConstantTimeOperations#nop(long)} takes, in
+     * picoseconds.
+     */
+    @CheckReturnValue
+    static long getPicosPerIteration() {
+        return picosPerIteration;
+    }
+
+    /**
+     * Refine the oversleep estimate from how far a park overslept.
+     */
+    static void sampleParkOversleep(final long oversleptNanos) {
+        final long cap = MAX_SAMPLE_FACTOR * Math.max(calibratedParkOversleepNanos, MIN_SPIN_NANOS);
+        parkOversleepNanos = smooth(parkOversleepNanos, Math.max(0, Math.min(oversleptNanos, cap)));
+    }
+
+    /**
+     * Refine the iteration time estimate from how long the iterations of a spin took, in picoseconds each.
+     */
+    static void samplePicosPerIteration(final long picos) {
+        final long cap = MAX_SAMPLE_FACTOR * calibratedPicosPerIteration;
+        picosPerIteration = Math.max(1, smooth(picosPerIteration, Math.min(picos, cap)));
+    }
+
+    /**
+     * Start from the median oversleep and the best iteration time seen over a few rounds. The worst oversleep would
+     * be at the mercy of one preempted round, and samples are capped and estimates decay relative to the calibrated
+     * values; a typical oversleep still grows to a higher one within a few waits. The spin loop runs interpreted at
+     * first, so its best round is the least misleading.
+     */
+    private static void calibrate() {
+        final long[] oversleeps = new long[CALIBRATION_ROUNDS];
+        long bestSpinNanos = Long.MAX_VALUE;
+        for (int round = 0; round < CALIBRATION_ROUNDS; ++round) {
+            final long parkedAt = System.nanoTime();
+            LockSupport.parkNanos(CALIBRATION_PARK_NANOS);
+            final long spunAt = System.nanoTime();
+            sink = ConstantTimeOperations.nop(CALIBRATION_ITERATIONS);
+            final long finishedAt = System.nanoTime();
+
+            oversleeps[round] = Math.max(0, spunAt - parkedAt - CALIBRATION_PARK_NANOS);
+            bestSpinNanos = Math.min(bestSpinNanos, finishedAt - spunAt);
+        }
+        Arrays.sort(oversleeps);
+        calibratedParkOversleepNanos = oversleeps[CALIBRATION_ROUNDS / 2];
+        calibratedPicosPerIteration = Math.max(1, bestSpinNanos * 1000 / CALIBRATION_ITERATIONS);
+        parkOversleepNanos = calibratedParkOversleepNanos;
+        picosPerIteration = calibratedPicosPerIteration;
+    }
+
+    private static long smooth(final long estimate, final long sample) {
+        return estimate + ((sample - estimate) >> SMOOTHING_SHIFT);
+    }
+}
@@ -0,0 +1,334 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Finds the id registered for a secret token, such as an API key, in constant time however many tokens are indexed;
+ * for when a scan with {@link ConstantTimeOperations#indexOf(byte[], byte[][])} no longer scales.
+ * <p>
+ * Tokens themselves are never stored. Each is reduced to a 128-bit digest by two SipHash-2-4 functions, keyed with a
+ * random key drawn for each index, so an attacker who cannot see the key cannot predict where a token lands or craft
+ * collisions. Digests are kept in primitive arrays, in buckets of eight slots; every token may live in either of two
+ * buckets, chosen by its digest. A lookup hashes the token and compares it against all sixteen slots of both buckets
+ * without stopping at a match, so its time depends on the token's length alone, and it allocates nothing.
+ * <p>
+ * Adding and removing tokens is not constant-time, and an index is not thread-safe: lookups may run concurrently with
+ * each other, but not with changes.
+ */
+@ParametersAreNonnullByDefault
+public final class TokenIndex {
+
+    private static final int SLOTS_PER_BUCKET = 8;
+    private static final int MIN_BUCKETS = 2;
+
+    // The most buckets whose digests still fit in one array.
+    private static final int MAX_BUCKETS = Integer.highestOneBit(Integer.MAX_VALUE / (2 * SLOTS_PER_BUCKET));
+
+    // Grow once more than this share of slots are filled; with two choices per token, buckets rarely overflow below it.
+    private static final double MAX_LOAD = 0.85;
+
+    private static final int EMPTY = -1;
+
+    private final long firstKey0;
+    private final long firstKey1;
+    private final long secondKey0;
+    private final long secondKey1;
+
+    // Slot i holds its digest in digests[2 * i] and digests[2 * i + 1], and its id in ids[i], or EMPTY.
+    private long[] digests;
+    private int[] ids;
+    private int bucketMask;
+    private int size;
+
+    private TokenIndex(final int buckets) {
+        final SecureRandom random = new SecureRandom();
+        this.firstKey0 = random.nextLong();
+        this.firstKey1 = random.nextLong();
+        this.secondKey0 = random.nextLong();
+        this.secondKey1 = random.nextLong();
+        allocate(buckets);
+    }
+
+    @Nonnull
+    @CheckReturnValue
+    public static TokenIndex create() {
+        return new TokenIndex(MIN_BUCKETS);
+    }
+
+    /**
+     * Create an index sized to hold the expected number of tokens without growing.
+     *
+     * @throws IllegalArgumentException if the number is negative, or more than an index can hold.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public static TokenIndex create(final int expectedTokens) {
+        if (expectedTokens < 0) {
+            throw new IllegalArgumentException("expected tokens must not be negative");
+        }
+        final long slots = (long) Math.ceil(expectedTokens / MAX_LOAD);
+        if ((long) MAX_BUCKETS * SLOTS_PER_BUCKET < slots) {
+            throw new IllegalArgumentException(
+                    "an index cannot hold " + expectedTokens + " tokens; the most is "
+                            + (int) (MAX_BUCKETS * SLOTS_PER_BUCKET * MAX_LOAD)
+            );
+        }
+        int buckets = MIN_BUCKETS;
+        while ((long) buckets * SLOTS_PER_BUCKET < slots) {
+            buckets <<= 1;
+        }
+        return new TokenIndex(buckets);
+    }
+
+    /**
+     * Register a token under an id, replacing any id it was already registered under. The token is not retained, so
+     * the caller can shred it afterwards.
+     *
+     * @throws IllegalArgumentException if the id is negative.
+     */
+    public void put(final byte[] token, final int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id must not be negative");
+        }
+        final long first = firstHash(token);
+        final long second = secondHash(token);
+
+        final int existing = find(first, second);
+        if (existing != EMPTY) {
+            ids[existing] = id;
+            return;
+        }
+        if (size + 1 > MAX_LOAD * ids.length) {
+            grow();
+        }
+        while (!insert(first, second, id)) {
+            grow();
+        }
+        ++size;
+    }
+
+    /**
+     * The id a token is registered under, or {@code -1} if it is not registered; in constant time.
+     */
+    @CheckReturnValue
+    public int lookup(final byte[] token) {
+        final long first = firstHash(token);
+        final long second = secondHash(token);
+        final int id = lookupInBucket(first, second, firstBucket(first), EMPTY);
+        return lookupInBucket(first, second, secondBucket(second), id);
+    }
+
+    /**
+     * Unregister a token.
+     *
+     * @return whether it was registered.
+     */
+    public boolean remove(final byte[] token) {
+        final int slot = find(firstHash(token), secondHash(token));
+        if (slot == EMPTY) {
+            return false;
+        }
+        digests[2 * slot] = 0;
+        digests[2 * slot + 1] = 0;
+        ids[slot] = EMPTY;
+        --size;
+        return true;
+    }
+
+    /**
+     * The number of tokens registered.
+     */
+    @CheckReturnValue
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The id of the slot in the bucket holding the digest, or {@code id} if none does, found by checking every slot.
+     */
+    private int lookupInBucket(final long first, final long second, final int bucket, final int id) {
+        int found = id;
+        for (int slot = bucket * SLOTS_PER_BUCKET, end = slot + SLOTS_PER_BUCKET; slot < end; ++slot) {
+            final int slotId = ids[slot];
+            final long difference = (digests[2 * slot] ^ first) | (digests[2 * slot + 1] ^ second);
+            final int match = ConstantTimePrimitives.isZeroMask(difference) & ~(slotId >> 31);
+            found = ConstantTimePrimitives.select(match, slotId, found);
+        }
+        return found;
+    }
+
+    /**
+     * The slot holding a digest, or {@code -1}; exits early, as it is only used for changes.
+     */
+    private int find(final long first, final long second) {
+        final int slot = findInBucket(first, second, firstBucket(first));
+        return slot == EMPTY ? findInBucket(first, second, secondBucket(second)) : slot;
+    }
+
+    private int findInBucket(final long first, final long second, final int bucket) {
+        for (int slot = bucket * SLOTS_PER_BUCKET, end = slot + SLOTS_PER_BUCKET; slot < end; ++slot) {
+            if (ids[slot] != EMPTY && digests[2 * slot] == first && digests[2 * slot + 1] == second) {
+                return slot;
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Place a digest in the emptier of its two buckets.
+     *
+     * @return false if both are full.
+     */
+    private boolean insert(final long first, final long second, final int id) {
+        final int firstBucket = firstBucket(first);
+        final int secondBucket = secondBucket(second);
+        final int bucket = occupancy(secondBucket) < occupancy(firstBucket) ? secondBucket : firstBucket;
+        for (int slot = bucket * SLOTS_PER_BUCKET, end = slot + SLOTS_PER_BUCKET; slot < end; ++slot) {
+            if (ids[slot] == EMPTY) {
+                digests[2 * slot] = first;
+                digests[2 * slot + 1] = second;
+                ids[slot] = id;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int occupancy(final int bucket) {
+        int occupied = 0;
+        for (int slot = bucket * SLOTS_PER_BUCKET, end = slot + SLOTS_PER_BUCKET; slot < end; ++slot) {
+            if (ids[slot] != EMPTY) {
+                ++occupied;
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * Double the number of buckets and place every digest again; digests determine their buckets, so the tokens are
+     * not needed.
+     */
+    private void grow() {
+        final long[] oldDigests = digests;
+        final int[] oldIds = ids;
+        for (int buckets = (bucketMask + 1) << 1; !rehash(oldDigests, oldIds, buckets); buckets <<= 1) {
+            // A bucket overflowed; try again with twice as many.
+        }
+    }
+
+    private boolean rehash(final long[] oldDigests, final int[] oldIds, final int buckets) {
+        allocate(buckets);
+        for (int slot = 0; slot < oldIds.length; ++slot) {
+            if (oldIds[slot] != EMPTY && !insert(oldDigests[2 * slot], oldDigests[2 * slot + 1], oldIds[slot])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void allocate(final int buckets) {
+        if (buckets <= 0 || MAX_BUCKETS < buckets) {
+            throw new IllegalStateException("token index is full");
+        }
+        digests = new long[2 * buckets * SLOTS_PER_BUCKET];
+        ids = new int[buckets * SLOTS_PER_BUCKET];
+        Arrays.fill(ids, EMPTY);
+        bucketMask = buckets - 1;
+    }
+
+    private int firstBucket(final long first) {
+        return (int) first & bucketMask;
+    }
+
+    private int secondBucket(final long second) {
+        return (int) second & bucketMask;
+    }
+
+    private long firstHash(final byte[] token) {
+        return sipHash24(firstKey0, firstKey1, token);
+    }
+
+    private long secondHash(final byte[] token) {
+        return sipHash24(secondKey0, secondKey1, token);
+    }
+
+    /**
+     * SipHash-2-4 of a message under a 128-bit key, as specified by Aumasson and Bernstein. The key and message words
+     * are little-endian. Every branch depends on the message length alone.
+     */
+    @CheckReturnValue
+    static long sipHash24(final long key0, final long key1, final byte[] message) {
+        final ByteBuffer words = ByteBuffer.wrap(message).order(ByteOrder.LITTLE_ENDIAN);
+        final int length = message.length;
+        final int whole = length - length % Long.BYTES;
+
+        final SipState state = new SipState(key0, key1);
+        for (int position = 0; position < whole; position += Long.BYTES) {
+            state.absorb(words.getLong(position));
+        }
+
+        long last = (long) length << 56;
+        for (int i = whole; i < length; ++i) {
+            last |= (message[i] & 0xFFL) << (Byte.SIZE * (i - whole));
+        }
+        state.absorb(last);
+        return state.finish();
+    }
+
+    /**
+     * The four SipHash state words. Instances never escape {@link #sipHash24}, so the JIT keeps them in registers.
+     */
+    private static final class SipState {
+
+        long v0;
+        long v1;
+        long v2;
+        long v3;
+
+        SipState(final long key0, final long key1) {
+            v0 = key0 ^ 0x736f6d6570736575L;
+            v1 = key1 ^ 0x646f72616e646f6dL;
+            v2 = key0 ^ 0x6c7967656e657261L;
+            v3 = key1 ^ 0x7465646279746573L;
+        }
+
+        void absorb(final long word) {
+            v3 ^= word;
+            round();
+            round();
+            v0 ^= word;
+        }
+
+        long finish() {
+            v2 ^= 0xFF;
+            round();
+            round();
+            round();
+            round();
+            return v0 ^ v1 ^ v2 ^ v3;
+        }
+
+        private void round() {
+            v0 += v1;
+            v1 = Long.rotateLeft(v1, 13);
+            v1 ^= v0;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v3;
+            v3 = Long.rotateLeft(v3, 16);
+            v3 ^= v2;
+            v0 += v3;
+            v3 = Long.rotateLeft(v3, 21);
+            v3 ^= v0;
+            v2 += v1;
+            v1 = Long.rotateLeft(v1, 17);
+            v1 ^= v2;
+            v2 = Long.rotateLeft(v2, 32);
+        }
+    }
+}
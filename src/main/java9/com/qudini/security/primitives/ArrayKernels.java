@@ -0,0 +1,96 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * The JDK 9 version of the inner loops. Words and chars are read straight out of byte arrays through
+ * {@link VarHandle} views, which compile to single loads without wrapping the arrays in buffers, and indices are
+ * checked with {@link Objects#checkIndex}, which the JIT treats as an intrinsic and folds into its own range checks.
+ */
+@CheckReturnValue
+@ParametersAreNonnullByDefault
+final class ArrayKernels {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle CHARS = MethodHandles.byteArrayViewVarHandle(char[].class, ByteOrder.BIG_ENDIAN);
+
+    private ArrayKernels() {
+        throw new UnsupportedOperationException();
+    }
+
+    static long difference(
+            final byte[] xs,
+            final int xsOffset,
+            final int xsLength,
+            final byte[] ys,
+            final int ysOffset,
+            final int ysLength,
+            final int checks
+    ) {
+        long result = 0;
+        for (int word = 0, words = (int) ((checks + (Long.BYTES - 1L)) / Long.BYTES); word < words; ++word) {
+            final int position = word * Long.BYTES;
+            result |= word(xs, xsOffset, xsLength, position) ^ word(ys, ysOffset, ysLength, position);
+        }
+        return result;
+    }
+
+    static long difference(final byte[] xs, final int xsOffset, final byte[] ys, final int ysOffset, final int length) {
+        long result = 0;
+        int position = 0;
+        for (; position <= length - Long.BYTES; position += Long.BYTES) {
+            result |= (long) LONGS.get(xs, xsOffset + position) ^ (long) LONGS.get(ys, ysOffset + position);
+        }
+        for (; position < length; ++position) {
+            result |= xs[xsOffset + position] ^ ys[ysOffset + position];
+        }
+        return result;
+    }
+
+    static void bytesToChars(
+            final byte[] bytes,
+            final int bytesOffset,
+            final char[] chars,
+            final int charsOffset,
+            final int count
+    ) {
+        for (int i = 0; i < count; ++i) {
+            chars[charsOffset + i] = (char) CHARS.get(bytes, bytesOffset + 2 * i);
+        }
+    }
+
+    static int littleEndianInt(final byte[] array, final int index) {
+        return (int) INTS.get(array, index);
+    }
+
+    static int checkIndex(final int index, final int length) {
+        return Objects.checkIndex(index, length);
+    }
+
+    static void checkRange(final int arrayLength, final int offset, final int length) {
+        Objects.checkFromIndexSize(offset, length, arrayLength);
+    }
+
+    /**
+     * The eight bytes from {@code position} of the range, with any past its end taken as {@code -1}, as in the JDK 8
+     * version.
+     */
+    private static long word(final byte[] array, final int offset, final int length, final int position) {
+        if (position <= length - Long.BYTES) {
+            return (long) LONGS.get(array, offset + position);
+        }
+
+        long word = 0;
+        for (int i = 0; i < Long.BYTES; ++i) {
+            final int n = position + i;
+            word = (word << Byte.SIZE) | ((n < length ? array[offset + n] : -1) & 0xFF);
+        }
+        return word;
+    }
+}
@@ -0,0 +1,19 @@
+package com.qudini.security.primitives;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.lang.ref.Reference;
+
+/**
+ * The JDK 9 version of the reachability fence, which delegates to {@link Reference#reachabilityFence}.
+ */
+@ParametersAreNonnullByDefault
+final class Reachability {
+
+    private Reachability() {
+        throw new UnsupportedOperationException();
+    }
+
+    static void fence(final Object object) {
+        Reference.reachabilityFence(object);
+    }
+}
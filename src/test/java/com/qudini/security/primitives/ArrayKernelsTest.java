@@ -0,0 +1,98 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Runs against the JDK 8 classes and, in the multi-release build, again against the JDK 9 ones.
+ */
+public class ArrayKernelsTest extends TestCase {
+
+    public void testRunsTheExpectedVersion() {
+        final String version = System.getProperty("arrayKernels.version");
+        final String location = ArrayKernels.class.getProtectionDomain().getCodeSource().getLocation().toString();
+        if (version == null) {
+            assertFalse(location, location.contains("META-INF/versions/"));
+        } else {
+            assertTrue(location, location.endsWith("META-INF/versions/" + version + "/"));
+        }
+    }
+
+    public void testDifference() {
+        final Random random = new Random(0);
+        for (int length = 0; length < 40; ++length) {
+            final byte[] xs = new byte[length + 5];
+            random.nextBytes(xs);
+            final byte[] ys = new byte[length + 3];
+            System.arraycopy(xs, 5, ys, 3, length);
+
+            for (final int checks : new int[]{length, length + 1, length + 8, 64}) {
+                assertEquals(0, ArrayKernels.difference(xs, 5, length, ys, 3, length, checks));
+            }
+            for (int i = 0; i < length; ++i) {
+                ys[3 + i] ^= 1;
+                assertTrue(ArrayKernels.difference(xs, 5, length, ys, 3, length, length) != 0);
+                ys[3 + i] ^= 1;
+            }
+        }
+    }
+
+    public void testDifferenceOfCommonLength() {
+        final Random random = new Random(0);
+        for (int length = 0; length < 40; ++length) {
+            final byte[] xs = new byte[length + 5];
+            random.nextBytes(xs);
+            final byte[] ys = new byte[length + 3];
+            System.arraycopy(xs, 5, ys, 3, length);
+
+            assertEquals(0, ArrayKernels.difference(xs, 5, ys, 3, length));
+            for (int i = 0; i < length; ++i) {
+                ys[3 + i] ^= 1;
+                assertTrue(ArrayKernels.difference(xs, 5, ys, 3, length) != 0);
+                ys[3 + i] ^= 1;
+            }
+        }
+    }
+
+    public void testBytesToChars() {
+        final byte[] bytes = {0x12, 0x34, (byte) 0xAB, (byte) 0xCD, 0x00, (byte) 0xFF, 0x7F};
+        final char[] chars = new char[4];
+        ArrayKernels.bytesToChars(bytes, 1, chars, 1, 3);
+        assertEquals(0, chars[0]);
+        assertEquals(0x34AB, chars[1]);
+        assertEquals(0xCD00, chars[2]);
+        assertEquals(0xFF7F, chars[3]);
+    }
+
+    public void testLittleEndianInt() {
+        final byte[] bytes = {0x12, 0x34, (byte) 0xAB, (byte) 0xCD, (byte) 0xFF, 0x7F};
+        assertEquals(0xCDAB3412, ArrayKernels.littleEndianInt(bytes, 0));
+        assertEquals(0x7FFFCDAB, ArrayKernels.littleEndianInt(bytes, 2));
+    }
+
+    public void testCheckIndex() {
+        assertEquals(0, ArrayKernels.checkIndex(0, 1));
+        assertEquals(4, ArrayKernels.checkIndex(4, 5));
+        for (final int index : new int[]{-1, 5, Integer.MAX_VALUE}) {
+            try {
+                ArrayKernels.checkIndex(index, 5);
+                fail("index " + index + " was accepted");
+            } catch (final IndexOutOfBoundsException expected) {
+            }
+        }
+    }
+
+    public void testCheckRange() {
+        ArrayKernels.checkRange(5, 0, 5);
+        ArrayKernels.checkRange(5, 5, 0);
+        ArrayKernels.checkRange(0, 0, 0);
+        for (final int[] range : new int[][]{{-1, 1}, {0, -1}, {1, 5}, {6, 0}, {1, Integer.MAX_VALUE}}) {
+            try {
+                ArrayKernels.checkRange(5, range[0], range[1]);
+                fail("offset " + range[0] + " and length " + range[1] + " were accepted");
+            } catch (final IndexOutOfBoundsException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.IntStream.range;
+
+public class AsyncShredderTest extends TestCase {
+
+    public void testCloseDrainsEveryQueuedSecret() {
+        final List<char[]> secrets = new ArrayList<>();
+        try (AsyncShredder shredder = AsyncShredder.start(10000, ShredPolicy.ZERO)) {
+            for (int i = 0; i < 1000; ++i) {
+                final char[] secret = "secret".toCharArray();
+                secrets.add(secret);
+                shredder.shred(secret);
+            }
+            shredder.close();
+
+            assertEquals(0, shredder.getQueueDepth());
+            assertEquals(1000, shredder.getSubmittedCount());
+            assertEquals(1000, shredder.getBackgroundShredCount() + shredder.getInlineShredCount());
+            assertTrue(shredder.getMeanLagNanos() <= shredder.getMaxLagNanos());
+        }
+
+        for (final char[] secret : secrets) {
+            assertTrue(range(0, secret.length).allMatch(i -> secret[i] == '\0'));
+        }
+    }
+
+    public void testFullQueueFallsBackToInlineShredding() throws InterruptedException {
+        final ShredRandomSource original = Shredding.getRandomSource();
+        final CountDownLatch workerBlocked = new CountDownLatch(1);
+        final CountDownLatch releaseWorker = new CountDownLatch(1);
+
+        // Hold the worker inside its first shred so the queue can be filled behind it.
+        Shredding.setRandomSource(new ShredRandomSource() {
+            @Override
+            public void nextBytes(final byte[] bytes, final int offset, final int length) {
+                if (Thread.currentThread().getName().equals("async-shredder")) {
+                    workerBlocked.countDown();
+                    try {
+                        releaseWorker.await();
+                    } catch (final InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                original.nextBytes(bytes, offset, length);
+            }
+
+            @Override
+            public void nextChars(final char[] chars, final int offset, final int length) {
+                original.nextChars(chars, offset, length);
+            }
+        });
+
+        // The secret being shredded keeps its slot until it is done, so the worker's one and two more fill the queue.
+        final AsyncShredder shredder = AsyncShredder.start(3, ShredPolicy.RANDOM);
+        try {
+            shredder.shred(new byte[16]);
+            workerBlocked.await();
+
+            shredder.shred(new byte[16]);
+            shredder.shred(new byte[16]);
+            assertEquals(3, shredder.getQueueDepth());
+
+            final byte[] overflow = new byte[64];
+            Arrays.fill(overflow, (byte) 'A');
+            shredder.shred(overflow);
+            assertEquals(1, shredder.getInlineShredCount());
+            assertFalse(range(0, overflow.length).allMatch(i -> overflow[i] == 'A'));
+
+            releaseWorker.countDown();
+            shredder.close();
+            assertEquals(3, shredder.getBackgroundShredCount());
+            assertEquals(0, shredder.getQueueDepth());
+        } finally {
+            releaseWorker.countDown();
+            shredder.close();
+            Shredding.setRandomSource(original);
+        }
+    }
+
+    public void testSecretsHandedOverWhileClosingAreAllShredded() throws InterruptedException {
+        final int producers = 4;
+        final int secretsPerProducer = 500;
+        for (int round = 0; round < 20; ++round) {
+            final AsyncShredder shredder = AsyncShredder.start(1 << 16, ShredPolicy.ZERO);
+            final List<List<char[]>> secrets = new ArrayList<>();
+            final List<Thread> threads = new ArrayList<>();
+            final CountDownLatch started = new CountDownLatch(producers);
+            for (int producer = 0; producer < producers; ++producer) {
+                final List<char[]> handedOver = new ArrayList<>();
+                secrets.add(handedOver);
+                threads.add(new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < secretsPerProducer; ++i) {
+                        final char[] secret = "secret".toCharArray();
+                        handedOver.add(secret);
+                        shredder.shred(secret);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            started.await();
+            shredder.close();
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(producers * secretsPerProducer, shredder.getSubmittedCount());
+            assertEquals(0, shredder.getQueueDepth());
+            for (final List<char[]> handedOver : secrets) {
+                for (final char[] secret : handedOver) {
+                    assertTrue(range(0, secret.length).allMatch(i -> secret[i] == '\0'));
+                }
+            }
+        }
+    }
+
+    public void testFailingSecretDoesNotStopLaterDrains() throws InterruptedException {
+        final ShredRandomSource original = Shredding.getRandomSource();
+        final int poisonedLength = 13;
+
+        // Fail to shred any batch made of just the poisoned secret on the worker thread.
+        Shredding.setRandomSource(new ShredRandomSource() {
+            @Override
+            public void nextBytes(final byte[] bytes, final int offset, final int length) {
+                if (length == poisonedLength && Thread.currentThread().getName().equals("async-shredder")) {
+                    throw new IllegalStateException("cannot shred");
+                }
+                original.nextBytes(bytes, offset, length);
+            }
+
+            @Override
+            public void nextChars(final char[] chars, final int offset, final int length) {
+                original.nextChars(chars, offset, length);
+            }
+        });
+
+        final AsyncShredder shredder = AsyncShredder.start(16, ShredPolicy.RANDOM);
+        try {
+            shredder.shred(new byte[poisonedLength]);
+            awaitDrained(shredder);
+            assertEquals(1, shredder.getBackgroundFailureCount());
+
+            final byte[] later = new byte[64];
+            Arrays.fill(later, (byte) 'A');
+            shredder.shred(later);
+            awaitDrained(shredder);
+            assertFalse(range(0, later.length).allMatch(i -> later[i] == 'A'));
+
+            shredder.close();
+            assertEquals(1, shredder.getBackgroundShredCount());
+            assertEquals(1, shredder.getBackgroundFailureCount());
+            assertEquals(0, shredder.getInlineShredCount());
+        } finally {
+            shredder.close();
+            Shredding.setRandomSource(original);
+        }
+    }
+
+    public void testErrorWhileShreddingDoesNotStopTheWorker() throws InterruptedException {
+        final ShredRandomSource original = Shredding.getRandomSource();
+        final int poisonedLength = 13;
+
+        // Throw an Error for the poisoned secret on the worker thread, as an exhausted heap or stack would.
+        Shredding.setRandomSource(new ShredRandomSource() {
+            @Override
+            public void nextBytes(final byte[] bytes, final int offset, final int length) {
+                if (length == poisonedLength && Thread.currentThread().getName().equals("async-shredder")) {
+                    throw new StackOverflowError("thrown by a test random source");
+                }
+                original.nextBytes(bytes, offset, length);
+            }
+
+            @Override
+            public void nextChars(final char[] chars, final int offset, final int length) {
+                original.nextChars(chars, offset, length);
+            }
+        });
+
+        final AsyncShredder shredder = AsyncShredder.start(16, ShredPolicy.RANDOM);
+        try {
+            shredder.shred(new byte[poisonedLength]);
+            awaitDrained(shredder);
+            assertEquals(1, shredder.getBackgroundFailureCount());
+
+            final byte[] later = new byte[64];
+            Arrays.fill(later, (byte) 'A');
+            shredder.shred(later);
+            awaitDrained(shredder);
+            assertFalse(range(0, later.length).allMatch(i -> later[i] == 'A'));
+
+            shredder.close();
+            assertEquals(1, shredder.getBackgroundShredCount());
+            assertEquals(1, shredder.getBackgroundFailureCount());
+        } finally {
+            shredder.close();
+            Shredding.setRandomSource(original);
+        }
+    }
+
+    private static void awaitDrained(final AsyncShredder shredder) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (shredder.getQueueDepth() != 0) {
+            assertTrue("shredder did not drain", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    public void testInstalledShredderReceivesClosedPassphrases() {
+        try (AsyncShredder shredder = AsyncShredder.start(16)) {
+            Shredding.setAsyncShredder(shredder);
+            Passphrase.attempt("aBCdef123".toCharArray()).close();
+            shredder.close();
+            assertEquals(1, shredder.getSubmittedCount());
+        } finally {
+            Shredding.setAsyncShredder(null);
+        }
+    }
+
+    public void testInstalledShredderReceivesOutgrownBuilderArrays() {
+        try (AsyncShredder shredder = AsyncShredder.start(16)) {
+            Shredding.setAsyncShredder(shredder);
+            final SecureCharBuilder builder = new SecureCharBuilder(4).append("aBCdef123".toCharArray());
+            shredder.close();
+            assertEquals(1, shredder.getSubmittedCount());
+            builder.close();
+        } finally {
+            Shredding.setAsyncShredder(null);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A burst of padded authentication calls served by a small pool: through an {@link AuthTimingEnvelope}, against each
+ * call holding its pool thread for the budget, as padding with {@link ConstantTimeOperations#nop(long)} did before.
+ * The score is how long the whole burst takes to be answered.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class AuthTimingEnvelopeBenchmark {
+
+    private static final int THREADS = 4;
+    private static final Duration BUDGET = Duration.ofMillis(10);
+
+    @Param({"100", "1000"})
+    public int calls;
+
+    private ExecutorService executor;
+    private AuthTimingEnvelope envelope;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        envelope = AuthTimingEnvelope.create(BUDGET, executor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public Object envelope() {
+        final CompletableFuture<?>[] responses = new CompletableFuture<?>[calls];
+        for (int i = 0; i < calls; ++i) {
+            responses[i] = envelope.submit(() -> Boolean.TRUE);
+        }
+        return CompletableFuture.allOf(responses).join();
+    }
+
+    @Benchmark
+    public Object padOnPoolThreads() {
+        final CompletableFuture<?>[] responses = new CompletableFuture<?>[calls];
+        for (int i = 0; i < calls; ++i) {
+            responses[i] = CompletableFuture.supplyAsync(() -> {
+                TimingPadding.padFor(BUDGET);
+                return Boolean.TRUE;
+            }, executor);
+        }
+        return CompletableFuture.allOf(responses).join();
+    }
+}
@@ -0,0 +1,103 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class AuthTimingEnvelopeTest extends TestCase {
+
+    private static final Duration BUDGET = Duration.ofMillis(50);
+
+    public void testRespondsAtTheDeadline() throws Exception {
+        final AuthTimingEnvelope envelope = AuthTimingEnvelope.create(BUDGET);
+        final long start = System.nanoTime();
+        final CompletableFuture<Boolean> response = envelope.submit(() -> true);
+        assertFalse("responded before the budget passed", response.isDone());
+
+        assertTrue(response.get(5, TimeUnit.SECONDS));
+        assertTrue(BUDGET.toNanos() <= System.nanoTime() - start);
+        assertEquals(1, envelope.getCallCount());
+        assertEquals(0, envelope.getOverrunCount());
+    }
+
+    public void testFailuresAreHeldUntilTheDeadline() throws Exception {
+        final AuthTimingEnvelope envelope = AuthTimingEnvelope.create(BUDGET);
+        final long start = System.nanoTime();
+        final CompletableFuture<Boolean> response = envelope.submit(() -> {
+            throw new IllegalStateException("no such user");
+        });
+        assertFalse(response.isDone());
+
+        try {
+            response.get(5, TimeUnit.SECONDS);
+            fail("a failing check completed normally");
+        } catch (final ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(BUDGET.toNanos() <= System.nanoTime() - start);
+    }
+
+    public void testRespondsAfterATimerTaskThrowsAnError() throws Exception {
+        final CountDownLatch thrown = new CountDownLatch(1);
+        TimerWheel.shared().schedule(System.nanoTime(), () -> {
+            thrown.countDown();
+            throw new StackOverflowError("thrown by a test timer task");
+        });
+        assertTrue(thrown.await(5, TimeUnit.SECONDS));
+
+        final AuthTimingEnvelope envelope = AuthTimingEnvelope.create(BUDGET);
+        assertTrue(envelope.submit(() -> true).get(5, TimeUnit.SECONDS));
+    }
+
+    public void testOverrunsAreCounted() throws Exception {
+        final AuthTimingEnvelope envelope = AuthTimingEnvelope.create(Duration.ofMillis(1));
+        final CompletableFuture<String> response = envelope.submit(() -> {
+            TimeUnit.MILLISECONDS.sleep(20);
+            return "late";
+        });
+
+        assertTrue("an overrun was padded further", response.isDone());
+        assertEquals("late", response.get());
+        assertEquals(1, envelope.getOverrunCount());
+        assertTrue(TimeUnit.MILLISECONDS.toNanos(19) <= envelope.getMaxOverrunNanos());
+    }
+
+    public void testManyCallsInFlight() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final AuthTimingEnvelope envelope = AuthTimingEnvelope.create(BUDGET, executor);
+            final long start = System.nanoTime();
+            final List<CompletableFuture<Integer>> responses = new ArrayList<>();
+            for (int i = 0; i < 2000; ++i) {
+                final int n = i;
+                responses.add(envelope.submit(() -> n));
+            }
+
+            for (int i = 0; i < responses.size(); ++i) {
+                assertEquals(i, (int) responses.get(i).get(5, TimeUnit.SECONDS));
+            }
+            final long elapsed = System.nanoTime() - start;
+            assertTrue(BUDGET.toNanos() <= elapsed);
+            assertTrue("padding held the executor's threads", elapsed < TimeUnit.SECONDS.toNanos(2));
+            assertEquals(2000, envelope.getCallCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testInvalidBudgets() {
+        try {
+            AuthTimingEnvelope.create(Duration.ZERO);
+            fail("a zero budget was accepted");
+        } catch (final IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Case-insensitive constant-time equality on typical identifiers; run with {@code -prof gc} to see allocation. The
+ * {@code legacy} baseline reproduces the original implementation's cost: two fresh arrays, a lower-casing pass over
+ * each and shredding both afterwards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CaseInsensitiveEqualsBenchmark {
+
+    @Param({"username", "email"})
+    public String input;
+
+    private String xs;
+    private String ys;
+
+    @Setup
+    public void setUp() {
+        switch (input) {
+            case "username":
+                xs = "Alice.Example";
+                ys = "alice.example";
+                break;
+            case "email":
+                xs = "Alice.Example@Mail.Example.COM";
+                ys = "alice.example@mail.example.com";
+                break;
+            default:
+                throw new IllegalArgumentException(input);
+        }
+    }
+
+    @Benchmark
+    public boolean caseInsensitiveEquals() {
+        return ConstantTimeOperations.caseInsensitiveEquals(xs, ys, 32);
+    }
+
+    @Benchmark
+    public boolean legacyCaseInsensitiveEquals() {
+        final char[] lowerXs = new char[xs.length()];
+        final char[] lowerYs = new char[ys.length()];
+        asList(lowerXs, lowerYs).forEach(chars -> {
+            for (int i = chars.length - 1; i != 0; --i) {
+                chars[i] = Character.toLowerCase(chars[i]);
+            }
+        });
+        final boolean result = ConstantTimeOperations.equals(lowerXs, lowerYs, 32);
+        Shredding.shred(lowerXs);
+        Shredding.shred(lowerYs);
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.CharBuffer;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Constant-time character equality over each kind of input. With {@code callers} set to {@code mixed}, every kind of
+ * sequence is first compared through the {@link CharSequence} overload, as happens when strings, builders and
+ * sequencers are all checked in one JVM; the comparisons should then run no slower than with {@code monomorphic}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CharEqualsBenchmark {
+
+    private static final int POLLUTING_CALLS = 100_000;
+
+    @Param({"16", "64", "1024"})
+    public int size;
+
+    @Param({"monomorphic", "mixed"})
+    public String callers;
+
+    private char[] xs;
+    private char[] ys;
+
+    // Typed as CharSequence so that every comparison goes through the CharSequence overload.
+    private CharSequence xsString;
+    private CharSequence ysString;
+    private CharSequence xsSequencer;
+    private CharSequence ysSequencer;
+    private CharSequence xsBuffer;
+    private CharSequence ysBuffer;
+
+    @Setup
+    public void setUp() {
+        final SecureRandom random = new SecureRandom();
+        xs = new char[size];
+        for (int i = 0; i < size; ++i) {
+            xs[i] = (char) ('a' + random.nextInt(26));
+        }
+        ys = xs.clone();
+
+        xsString = new String(xs);
+        ysString = new String(ys);
+        xsSequencer = new NonCopyingCharArraySequencer(xs);
+        ysSequencer = new NonCopyingCharArraySequencer(ys);
+        xsBuffer = CharBuffer.wrap(xs);
+        ysBuffer = CharBuffer.wrap(ys);
+
+        if ("mixed".equals(callers)) {
+            final CharSequence[] sequences = {
+                    xsString, new StringBuilder(xsString), xsSequencer, xsBuffer, new SecureCharBuilder().append(xs)
+            };
+            int equal = 0;
+            for (int i = 0; i < POLLUTING_CALLS; ++i) {
+                final CharSequence sequence = sequences[i % sequences.length];
+                equal += ConstantTimeOperations.equals(sequence, sequence, size) ? 1 : 0;
+                equal += ConstantTimeOperations.equals(xs, ys, size) ? 1 : 0;
+            }
+            if (equal != 2 * POLLUTING_CALLS) {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean charArrays() {
+        return ConstantTimeOperations.equals(xs, ys, size);
+    }
+
+    @Benchmark
+    public boolean strings() {
+        return ConstantTimeOperations.equals(xsString, ysString, size);
+    }
+
+    @Benchmark
+    public boolean sequencers() {
+        return ConstantTimeOperations.equals(xsSequencer, ysSequencer, size);
+    }
+
+    @Benchmark
+    public boolean charBuffers() {
+        return ConstantTimeOperations.equals(xsBuffer, ysBuffer, size);
+    }
+}
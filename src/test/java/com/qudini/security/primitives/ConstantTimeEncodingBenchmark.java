@@ -0,0 +1,83 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static com.qudini.security.primitives.ConstantTimeEncoding.Alphabet.BASE64;
+
+/**
+ * Constant-time encoding against {@link Base64}, which is table-driven and therefore leaks through the cache. Run with
+ * {@code -prof gc} to confirm the constant-time paths allocate nothing, and with {@code -jvmArgsAppend
+ * "-XX:+UnlockDiagnosticVMOptions -XX:-UseBASE64Intrinsics"} to compare against its Java code rather than the vector
+ * intrinsics that replace it on some JDKs and CPUs. Encoding comes within 2x of it that way; decoding does not yet.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstantTimeEncodingBenchmark {
+
+    @Param({"32", "64", "1024"})
+    public int size;
+
+    private byte[] bytes;
+    private byte[] encoded;
+    private byte[] encodedDestination;
+    private byte[] decodedDestination;
+    private char[] hexDestination;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[size];
+        new SecureRandom().nextBytes(bytes);
+        encoded = Base64.getEncoder().encode(bytes);
+        encodedDestination = new byte[encoded.length];
+        decodedDestination = new byte[size];
+        hexDestination = new char[ConstantTimeEncoding.hexLength(size)];
+    }
+
+    @Benchmark
+    public byte[] encodeBase64() {
+        ConstantTimeEncoding.encodeBase64(BASE64, bytes, 0, size, encodedDestination, 0);
+        return encodedDestination;
+    }
+
+    @Benchmark
+    public byte[] decodeBase64() {
+        ConstantTimeEncoding.decodeBase64(BASE64, encoded, 0, encoded.length, decodedDestination, 0);
+        return decodedDestination;
+    }
+
+    @Benchmark
+    public char[] encodeHex() {
+        ConstantTimeEncoding.encodeHex(bytes, 0, size, hexDestination, 0);
+        return hexDestination;
+    }
+
+    @Benchmark
+    public byte[] javaUtilEncodeBase64() {
+        Base64.getEncoder().encode(bytes, encodedDestination);
+        return encodedDestination;
+    }
+
+    @Benchmark
+    public byte[] javaUtilDecodeBase64() {
+        Base64.getDecoder().decode(encoded, decodedDestination);
+        return decodedDestination;
+    }
+}
@@ -0,0 +1,190 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static com.qudini.security.primitives.ConstantTimeEncoding.Alphabet.BASE64;
+import static com.qudini.security.primitives.ConstantTimeEncoding.Alphabet.BASE64_URL;
+
+public class ConstantTimeEncodingTest extends TestCase {
+
+    public void testHexRoundTrips() {
+        final Random random = new Random(42);
+        for (int length = 0; length < 70; ++length) {
+            final byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            final String expected = hex(bytes);
+
+            final char[] chars = new char[ConstantTimeEncoding.hexLength(length) + 1];
+            assertEquals(2 * length, ConstantTimeEncoding.encodeHex(bytes, 0, length, chars, 1));
+            assertEquals(expected, new String(chars, 1, 2 * length));
+
+            final byte[] ascii = new byte[2 * length];
+            ConstantTimeEncoding.encodeHex(bytes, 0, length, ascii, 0);
+            assertEquals(expected, new String(ascii, StandardCharsets.US_ASCII));
+
+            final ByteBuffer direct = ByteBuffer.allocateDirect(2 * length);
+            ConstantTimeEncoding.encodeHex(ByteBuffer.wrap(bytes), direct);
+            assertFalse(direct.hasRemaining());
+            direct.flip();
+
+            final byte[] decoded = new byte[length];
+            assertEquals(length, ConstantTimeEncoding.decodeHex(chars, 1, 2 * length, decoded, 0));
+            assertTrue(Arrays.equals(bytes, decoded));
+            final byte[] upper = expected.toUpperCase().getBytes(StandardCharsets.US_ASCII);
+            assertEquals(length, ConstantTimeEncoding.decodeHex(upper, 0, upper.length, decoded, 0));
+            assertTrue(Arrays.equals(bytes, decoded));
+            final ByteBuffer decodedBuffer = ByteBuffer.allocateDirect(length);
+            ConstantTimeEncoding.decodeHex(direct, decodedBuffer);
+            decodedBuffer.flip();
+            assertEquals(ByteBuffer.wrap(bytes), decodedBuffer);
+        }
+    }
+
+    public void testEveryHexCharacter() {
+        final byte[] decoded = new byte[1];
+        for (int c = 0; c <= Character.MAX_VALUE; ++c) {
+            final boolean valid = Character.digit(c, 16) >= 0 && c < 128;
+            try {
+                ConstantTimeEncoding.decodeHex(new char[]{'0', (char) c}, 0, 2, decoded, 0);
+                assertTrue("accepted " + c, valid);
+                assertEquals(Character.digit(c, 16), decoded[0]);
+            } catch (final IllegalArgumentException exception) {
+                assertFalse("rejected " + c, valid);
+                assertEquals(0, decoded[0]);
+            }
+        }
+    }
+
+    public void testBase64MatchesJavaUtil() {
+        final Random random = new Random(42);
+        for (int length = 0; length < 70; ++length) {
+            final byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            final int encodedLength = ConstantTimeEncoding.base64Length(length);
+
+            for (final ConstantTimeEncoding.Alphabet alphabet : ConstantTimeEncoding.Alphabet.values()) {
+                final Base64.Encoder encoder = alphabet == BASE64 ? Base64.getEncoder() : Base64.getUrlEncoder();
+                final Base64.Decoder decoder = alphabet == BASE64 ? Base64.getDecoder() : Base64.getUrlDecoder();
+                final String expected = encoder.encodeToString(bytes);
+
+                final char[] chars = new char[encodedLength];
+                assertEquals(encodedLength, ConstantTimeEncoding.encodeBase64(alphabet, bytes, 0, length, chars, 0));
+                assertEquals(expected, new String(chars));
+
+                final byte[] ascii = new byte[encodedLength + 2];
+                ConstantTimeEncoding.encodeBase64(alphabet, bytes, 0, length, ascii, 2);
+                assertEquals(expected, new String(ascii, 2, encodedLength, StandardCharsets.US_ASCII));
+
+                final ByteBuffer direct = ByteBuffer.allocateDirect(encodedLength);
+                ConstantTimeEncoding.encodeBase64(alphabet, ByteBuffer.wrap(bytes), direct);
+                direct.flip();
+                assertEquals(ByteBuffer.wrap(expected.getBytes(StandardCharsets.US_ASCII)), direct);
+
+                final byte[] decoded = new byte[ConstantTimeEncoding.maxDecodedBase64Length(encodedLength)];
+                assertEquals(length, ConstantTimeEncoding.decodeBase64(alphabet, chars, 0, encodedLength, decoded, 0));
+                assertTrue(Arrays.equals(bytes, Arrays.copyOf(decoded, length)));
+
+                final String unpadded = expected.replace("=", "");
+                final byte[] unpaddedAscii = unpadded.getBytes(StandardCharsets.US_ASCII);
+                Arrays.fill(decoded, (byte) 0);
+                assertEquals(
+                        length,
+                        ConstantTimeEncoding.decodeBase64(alphabet, unpaddedAscii, 0, unpaddedAscii.length, decoded, 0)
+                );
+                assertTrue(Arrays.equals(decoder.decode(unpadded), Arrays.copyOf(decoded, length)));
+
+                final ByteBuffer decodedBuffer = ByteBuffer.allocateDirect(length);
+                ConstantTimeEncoding.decodeBase64(alphabet, direct, decodedBuffer);
+                assertFalse(direct.hasRemaining());
+                decodedBuffer.flip();
+                assertEquals(ByteBuffer.wrap(bytes), decodedBuffer);
+            }
+        }
+    }
+
+    public void testEveryBase64Character() {
+        final String standard = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        final String url = standard.replace('+', '-').replace('/', '_');
+        final byte[] decoded = new byte[1];
+        for (final ConstantTimeEncoding.Alphabet alphabet : ConstantTimeEncoding.Alphabet.values()) {
+            final String symbols = alphabet == BASE64 ? standard : url;
+            for (int c = 0; c <= Character.MAX_VALUE; ++c) {
+                final int value = symbols.indexOf(c);
+                try {
+                    ConstantTimeEncoding.decodeBase64(alphabet, new char[]{(char) c, 'A'}, 0, 2, decoded, 0);
+                    assertTrue("accepted " + c, 0 <= value);
+                    assertEquals((byte) (value << 2), decoded[0]);
+                } catch (final IllegalArgumentException exception) {
+                    assertTrue("rejected " + c, value < 0);
+                    assertEquals(0, decoded[0]);
+                }
+            }
+        }
+    }
+
+    public void testInvalidSymbolsAreRejectedAnywhere() {
+        final char[] valid = "QUJDREVGR0hJSktMTU5PUFFS".toCharArray();
+        final byte[] decoded = new byte[18];
+        for (int i = 0; i < valid.length; ++i) {
+            // Chars whose low bits make a valid symbol, a symbol of the other alphabet, padding and NUL.
+            for (final char c : new char[]{(char) ('A' + 0x100), (char) ('A' + 0x80), '-', '=', '\0'}) {
+                if (c == '=' && i == valid.length - 1) {
+                    continue; // Valid padding.
+                }
+                final char[] chars = valid.clone();
+                chars[i] = c;
+                assertInvalid(() -> ConstantTimeEncoding.decodeBase64(BASE64, chars, 0, chars.length, decoded, 0));
+                assertTrue(ConstantTimePrimitives.isZero(decoded));
+
+                if (c <= 0xFF) {
+                    final byte[] ascii = new String(chars).getBytes(StandardCharsets.ISO_8859_1);
+                    assertInvalid(() -> ConstantTimeEncoding.decodeBase64(BASE64, ascii, 0, ascii.length, decoded, 0));
+                    assertTrue(ConstantTimePrimitives.isZero(decoded));
+                }
+            }
+        }
+    }
+
+    public void testInvalidInput() {
+        final byte[] destination = new byte[8];
+        assertInvalid(() -> ConstantTimeEncoding.decodeHex(new char[]{'a'}, 0, 1, destination, 0));
+        assertInvalid(() -> ConstantTimeEncoding.decodeBase64(BASE64, "QUJDR".toCharArray(), 0, 5, destination, 0));
+        assertInvalid(() -> ConstantTimeEncoding.decodeBase64(BASE64, "QU=D".toCharArray(), 0, 4, destination, 0));
+        assertInvalid(() -> ConstantTimeEncoding.decodeBase64(BASE64_URL, "QUJD+w==".toCharArray(), 0, 8, destination, 0));
+        assertTrue(ConstantTimePrimitives.isZero(destination));
+
+        try {
+            ConstantTimeEncoding.encodeHex(ByteBuffer.allocate(4), ByteBuffer.allocate(7));
+            fail("encoded into a buffer without enough space");
+        } catch (final BufferOverflowException expected) {
+        }
+        try {
+            ConstantTimeEncoding.encodeBase64(BASE64, new byte[4], 1, 4, new char[8], 0);
+            fail("a range past the end of the source was accepted");
+        } catch (final IndexOutOfBoundsException expected) {
+        }
+    }
+
+    private static void assertInvalid(final Runnable decode) {
+        try {
+            decode.run();
+            fail("invalid input was decoded");
+        } catch (final IllegalArgumentException expected) {
+        }
+    }
+
+    private static String hex(final byte[] bytes) {
+        final StringBuilder builder = new StringBuilder();
+        for (final byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching a 32-byte key against every active key, with {@code indexOf} over separate arrays and over one packed
+ * array, against the loop of {@code equals} calls it replaces. The {@code match} parameter is a timing-variance check:
+ * each benchmark must take the same time whether the first entry, the last or none matches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstantTimeIndexOfBenchmark {
+
+    private static final int KEY_LENGTH = 32;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int entries;
+
+    @Param({"first", "last", "none"})
+    public String match;
+
+    private byte[][] haystack;
+    private byte[] packed;
+    private byte[] candidate;
+
+    @Setup
+    public void setUp() {
+        final SecureRandom random = new SecureRandom();
+        haystack = new byte[entries][KEY_LENGTH];
+        packed = new byte[entries * KEY_LENGTH];
+        for (int i = 0; i < entries; ++i) {
+            random.nextBytes(haystack[i]);
+            System.arraycopy(haystack[i], 0, packed, i * KEY_LENGTH, KEY_LENGTH);
+        }
+
+        candidate = new byte[KEY_LENGTH];
+        if (match.equals("first")) {
+            System.arraycopy(haystack[0], 0, candidate, 0, KEY_LENGTH);
+        } else if (match.equals("last")) {
+            System.arraycopy(haystack[entries - 1], 0, candidate, 0, KEY_LENGTH);
+        } else {
+            random.nextBytes(candidate);
+        }
+    }
+
+    @Benchmark
+    public int indexOf() {
+        return ConstantTimeOperations.indexOf(candidate, haystack);
+    }
+
+    @Benchmark
+    public int indexOfPacked() {
+        return ConstantTimeOperations.indexOf(candidate, packed, KEY_LENGTH);
+    }
+
+    @Benchmark
+    public int legacyEqualsLoop() {
+        int index = -1;
+        for (int i = 0; i < haystack.length; ++i) {
+            final int mask = ConstantTimeOperations.equals(candidate, haystack[i], KEY_LENGTH) ? -1 : 0;
+            index = (mask & i) | (~mask & index);
+        }
+        return index;
+    }
+}
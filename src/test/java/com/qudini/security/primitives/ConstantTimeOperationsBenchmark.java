@@ -0,0 +1,117 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.max;
+
+/**
+ * Constant-time equality by input size. The {@code difference} parameter doubles as a timing-variance check: for each
+ * size, the time must not depend on whether or where the inputs differ. The {@code legacy} benchmark reproduces the
+ * original byte-at-a-time comparison as a baseline, and {@code legacyCopyRangesThenEquals} the copies callers had to
+ * make to compare parts of arrays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstantTimeOperationsBenchmark {
+
+    private static final int RECORD_HEADER = 16;
+
+    @Param({"16", "32", "64", "256", "1024", "4096"})
+    public int size;
+
+    @Param({"none", "first", "last"})
+    public String difference;
+
+    private byte[] xs;
+    private byte[] ys;
+
+    // The inputs at the end of larger records, as when checking the MAC at the end of a packet.
+    private byte[] xsRecord;
+    private byte[] ysRecord;
+    private ByteBuffer xsDirect;
+    private ByteBuffer ysDirect;
+
+    @Setup
+    public void setUp() {
+        xs = new byte[size];
+        new SecureRandom().nextBytes(xs);
+        ys = xs.clone();
+        switch (difference) {
+            case "none":
+                break;
+            case "first":
+                ys[0] ^= 1;
+                break;
+            case "last":
+                ys[size - 1] ^= 1;
+                break;
+            default:
+                throw new IllegalArgumentException(difference);
+        }
+
+        xsRecord = new byte[RECORD_HEADER + size];
+        ysRecord = new byte[RECORD_HEADER + size];
+        System.arraycopy(xs, 0, xsRecord, RECORD_HEADER, size);
+        System.arraycopy(ys, 0, ysRecord, RECORD_HEADER, size);
+        xsDirect = ByteBuffer.allocateDirect(size).put(xs);
+        ysDirect = ByteBuffer.allocateDirect(size).put(ys);
+        xsDirect.flip();
+        ysDirect.flip();
+    }
+
+    @Benchmark
+    public boolean equalsBytes() {
+        return ConstantTimeOperations.equals(xs, ys, size);
+    }
+
+    @Benchmark
+    public boolean equalsByteRanges() {
+        return ConstantTimeOperations.equals(xsRecord, RECORD_HEADER, size, ysRecord, RECORD_HEADER, size, size);
+    }
+
+    @Benchmark
+    public boolean equalsDirectBuffers() {
+        return ConstantTimeOperations.equals(xsDirect, ysDirect, size);
+    }
+
+    @Benchmark
+    public boolean legacyCopyRangesThenEquals() {
+        return ConstantTimeOperations.equals(
+                Arrays.copyOfRange(xsRecord, RECORD_HEADER, xsRecord.length),
+                Arrays.copyOfRange(ysRecord, RECORD_HEADER, ysRecord.length),
+                size
+        );
+    }
+
+    @Benchmark
+    public boolean legacyEqualsBytes() {
+        int result = 0;
+        final int xsLength = xs.length;
+        final int ysLength = ys.length;
+        for (int n = max(xsLength, max(ysLength, max(size, 1))) - 1; 0 <= n; --n) {
+            final short x = (n < xsLength) ? xs[n] : -1;
+            final short y = (n < ysLength) ? ys[n] : -1;
+            result |= (x ^ y);
+        }
+        return result == 0;
+    }
+}
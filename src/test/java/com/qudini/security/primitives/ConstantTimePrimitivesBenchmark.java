@@ -0,0 +1,91 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The branch-free primitives on typical inputs. The {@code secret} parameter runs each benchmark with a {@code low} and
+ * a {@code high} secret input: for {@code lookup} the index, for {@code compare} the position of the first difference,
+ * and for the conditional operations the mask. Each runs in forks of its own, whose JIT compilations can differ by more
+ * than any leak would, so a gap between them is only a hint; {@link TimingLeakCheck} interleaves the inputs in one JVM
+ * and tests for a leak.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstantTimePrimitivesBenchmark {
+
+    private static final int SIZE = 32;
+    private static final int TABLE_SIZE = 256;
+
+    @Param({"low", "high"})
+    public String secret;
+
+    private final int[] table = new int[TABLE_SIZE];
+    private final byte[] xs = new byte[SIZE];
+    private final byte[] ys = new byte[SIZE];
+    private int index;
+    private int mask;
+
+    @Setup
+    public void setUp() {
+        final SecureRandom random = new SecureRandom();
+        for (int i = 0; i < TABLE_SIZE; ++i) {
+            table[i] = random.nextInt();
+        }
+        random.nextBytes(xs);
+        System.arraycopy(xs, 0, ys, 0, SIZE);
+
+        final boolean high = secret.equals("high");
+        index = high ? TABLE_SIZE - 1 : 0;
+        mask = high ? -1 : 0;
+        ys[high ? SIZE - 1 : 0] ^= 1;
+    }
+
+    @Benchmark
+    public int lookup() {
+        return ConstantTimePrimitives.lookup(table, index);
+    }
+
+    @Benchmark
+    public int compare() {
+        return ConstantTimePrimitives.compare(xs, ys, SIZE);
+    }
+
+    @Benchmark
+    public byte[] conditionalCopy() {
+        ConstantTimePrimitives.conditionalCopy(mask, xs, 0, ys, 0, SIZE);
+        return ys;
+    }
+
+    @Benchmark
+    public byte[] conditionalSwap() {
+        ConstantTimePrimitives.conditionalSwap(mask, xs, ys);
+        return xs;
+    }
+
+    @Benchmark
+    public long select() {
+        return ConstantTimePrimitives.select(mask, (long) index, (long) SIZE);
+    }
+
+    @Benchmark
+    public boolean isZero() {
+        return ConstantTimePrimitives.isZero(xs);
+    }
+}
@@ -0,0 +1,111 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class ConstantTimePrimitivesTest extends TestCase {
+
+    private static final int[] EDGE_CASES = {0, 1, -1, 2, -2, Integer.MAX_VALUE, Integer.MIN_VALUE, 255, 256};
+
+    public void testMasks() {
+        final Random random = new Random(42);
+        final int[] values = Arrays.copyOf(EDGE_CASES, EDGE_CASES.length + 200);
+        for (int i = EDGE_CASES.length; i < values.length; ++i) {
+            values[i] = random.nextInt();
+        }
+
+        for (final int a : values) {
+            assertEquals(a == 0 ? -1 : 0, ConstantTimePrimitives.isZeroMask(a));
+            assertEquals(a == 0 ? -1 : 0, ConstantTimePrimitives.isZeroMask((long) a << 32));
+            for (final int b : values) {
+                assertEquals(a == b ? -1 : 0, ConstantTimePrimitives.equalMask(a, b));
+                assertEquals(a < b ? -1 : 0, ConstantTimePrimitives.lessThanMask(a, b));
+            }
+        }
+    }
+
+    public void testSelect() {
+        assertEquals(1, ConstantTimePrimitives.select(-1, 1, 2));
+        assertEquals(2, ConstantTimePrimitives.select(0, 1, 2));
+        assertEquals(Long.MIN_VALUE, ConstantTimePrimitives.select(-1, Long.MIN_VALUE, 7L));
+        assertEquals(7L, ConstantTimePrimitives.select(0, Long.MIN_VALUE, 7L));
+        assertEquals((byte) -128, ConstantTimePrimitives.select(-1, (byte) -128, (byte) 127));
+        assertEquals((byte) 127, ConstantTimePrimitives.select(0, (byte) -128, (byte) 127));
+    }
+
+    public void testConditionalCopyAndSwap() {
+        final byte[] source = {1, 2, 3, 4};
+        final byte[] destination = {9, 9, 9, 9, 9};
+        ConstantTimePrimitives.conditionalCopy(0, source, 0, destination, 1, 4);
+        assertTrue(Arrays.equals(new byte[]{9, 9, 9, 9, 9}, destination));
+        ConstantTimePrimitives.conditionalCopy(-1, source, 1, destination, 1, 3);
+        assertTrue(Arrays.equals(new byte[]{9, 2, 3, 4, 9}, destination));
+
+        try {
+            ConstantTimePrimitives.conditionalCopy(-1, source, 1, destination, 0, 4);
+            fail("a range past the end of the source was accepted");
+        } catch (final IndexOutOfBoundsException expected) {
+        }
+
+        final byte[] xs = {1, 2, -3};
+        final byte[] ys = {4, -5, 6};
+        ConstantTimePrimitives.conditionalSwap(0, xs, ys);
+        assertTrue(Arrays.equals(new byte[]{1, 2, -3}, xs));
+        ConstantTimePrimitives.conditionalSwap(-1, xs, ys);
+        assertTrue(Arrays.equals(new byte[]{4, -5, 6}, xs));
+        assertTrue(Arrays.equals(new byte[]{1, 2, -3}, ys));
+    }
+
+    public void testCompare() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; ++i) {
+            final byte[] xs = new byte[random.nextInt(4)];
+            final byte[] ys = new byte[random.nextInt(4)];
+            for (int j = 0; j < xs.length; ++j) {
+                xs[j] = (byte) (random.nextInt(3) - 1);
+            }
+            for (int j = 0; j < ys.length; ++j) {
+                ys[j] = (byte) (random.nextInt(3) - 1);
+            }
+            assertEquals(
+                    Integer.signum(unsignedCompare(xs, ys)),
+                    ConstantTimePrimitives.compare(xs, ys, random.nextInt(8))
+            );
+        }
+    }
+
+    public void testLookup() {
+        final int[] table = {10, -20, 30, Integer.MIN_VALUE};
+        final byte[] bytes = {10, -20, 30, Byte.MIN_VALUE};
+        for (int i = 0; i < table.length; ++i) {
+            assertEquals(table[i], ConstantTimePrimitives.lookup(table, i));
+            assertEquals(bytes[i], ConstantTimePrimitives.lookup(bytes, i));
+        }
+
+        try {
+            ConstantTimePrimitives.lookup(table, 4);
+            fail("an index past the end of the table was accepted");
+        } catch (final IndexOutOfBoundsException expected) {
+        }
+    }
+
+    public void testIsZero() {
+        assertTrue(ConstantTimePrimitives.isZero(new byte[0]));
+        assertTrue(ConstantTimePrimitives.isZero(new byte[100]));
+        final byte[] bytes = new byte[100];
+        bytes[99] = (byte) 0x80;
+        assertFalse(ConstantTimePrimitives.isZero(bytes));
+    }
+
+    private static int unsignedCompare(final byte[] xs, final byte[] ys) {
+        for (int i = 0; i < Math.min(xs.length, ys.length); ++i) {
+            final int difference = (xs[i] & 0xFF) - (ys[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return xs.length - ys.length;
+    }
+}
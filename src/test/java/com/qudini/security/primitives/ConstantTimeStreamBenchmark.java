@@ -0,0 +1,69 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming constant-time comparison over in-memory streams, so the comparison itself is measured rather than I/O.
+ * The {@code legacy} baseline buffers both streams fully before comparing them, as callers had to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstantTimeStreamBenchmark {
+
+    @Param({"1048576", "67108864"})
+    public int size;
+
+    private byte[] xs;
+    private byte[] ys;
+
+    @Setup
+    public void setUp() {
+        xs = new byte[size];
+        new SecureRandom().nextBytes(xs);
+        ys = xs.clone();
+    }
+
+    @Benchmark
+    public boolean equalsStreams() throws IOException {
+        return ConstantTimeOperations.equals(new ByteArrayInputStream(xs), new ByteArrayInputStream(ys), 0);
+    }
+
+    @Benchmark
+    public boolean legacyBufferThenEquals() throws IOException {
+        return ConstantTimeOperations.equals(
+                readFully(new ByteArrayInputStream(xs)),
+                readFully(new ByteArrayInputStream(ys)),
+                0
+        );
+    }
+
+    private static byte[] readFully(final InputStream stream) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[8192];
+        for (int read; 0 <= (read = stream.read(chunk)); ) {
+            output.write(chunk, 0, read);
+        }
+        return output.toByteArray();
+    }
+}
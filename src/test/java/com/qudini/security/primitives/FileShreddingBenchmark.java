@@ -0,0 +1,72 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File shredding time by file size. The {@code heapChunks} baseline overwrites the file the obvious way, filling a new
+ * 8 KiB heap array and writing it out chunk by chunk; {@code shredChannel} writes 64 KiB chunks from a pooled array.
+ * Both write a single random pass; run with {@code -prof gc} to see the collections that allocating per call causes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FileShreddingBenchmark {
+
+    @Param({"1048576", "67108864"})
+    public long size;
+
+    private Path file;
+    private FileChannel channel;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("shredding", ".bin");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Shredding.shred(channel.map(FileChannel.MapMode.READ_WRITE, 0, size), ShredPolicy.RANDOM);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public FileChannel shredChannel() throws IOException {
+        Shredding.shred(channel, 0, size, ShredPolicy.RANDOM);
+        return channel;
+    }
+
+    @Benchmark
+    public FileChannel heapChunks() throws IOException {
+        final byte[] chunk = new byte[8 * 1024];
+        for (long position = 0; position < size; position += chunk.length) {
+            Shredding.getRandomSource().nextBytes(chunk, 0, chunk.length);
+            channel.write(ByteBuffer.wrap(chunk), position);
+        }
+        channel.force(false);
+        return channel;
+    }
+}
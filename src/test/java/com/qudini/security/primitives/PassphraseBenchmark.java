@@ -0,0 +1,42 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lifecycle cost of a passphrase attempt, from creation to being closed or abandoned to the garbage collector.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PassphraseBenchmark {
+
+    private static final String INPUT = "aBCdef123-correct-horse";
+
+    @Benchmark
+    public void attemptAndClose() {
+        Passphrase.attempt(INPUT.toCharArray()).close();
+    }
+
+    @Benchmark
+    public boolean registerAndCancel() {
+        return SecretCleaner.register(this, INPUT.toCharArray()).cancel();
+    }
+
+    @Benchmark
+    public Passphrase attemptAndAbandon() {
+        return Passphrase.attempt(INPUT.toCharArray());
+    }
+}
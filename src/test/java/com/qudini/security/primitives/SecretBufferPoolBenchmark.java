@@ -0,0 +1,75 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simulated login's scratch secrets: passphrase, confirmation and the salt-and-pepper concatenation built when
+ * hashing. Run with {@code -prof gc} to compare allocation rates; the sample mode reports p99 latency.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretBufferPoolBenchmark {
+
+    private static final char[] INPUT = "aBCdef123-correct-horse".toCharArray();
+
+    private final byte[] salt = new byte[64];
+    private final byte[] pepper = new byte[32];
+
+    @Benchmark
+    public void loginWithoutPool(final Blackhole blackhole) {
+        final char[] passphrase = new char[INPUT.length];
+        final char[] confirmation = new char[INPUT.length];
+        System.arraycopy(INPUT, 0, passphrase, 0, INPUT.length);
+        System.arraycopy(INPUT, 0, confirmation, 0, INPUT.length);
+
+        final byte[] hashingSalt = new byte[salt.length + pepper.length];
+        System.arraycopy(salt, 0, hashingSalt, 0, salt.length);
+        System.arraycopy(pepper, 0, hashingSalt, salt.length, pepper.length);
+
+        blackhole.consume(ConstantTimeOperations.equals(passphrase, confirmation, 32));
+        blackhole.consume(hashingSalt);
+
+        Shredding.shred(passphrase);
+        Shredding.shred(confirmation);
+        Shredding.shred(hashingSalt);
+    }
+
+    @Benchmark
+    public void loginWithPool(final Blackhole blackhole) {
+        final SecretBufferPool pool = SecretBufferPool.shared();
+        final char[] passphrase = pool.acquireChars(INPUT.length);
+        final char[] confirmation = pool.acquireChars(INPUT.length);
+        System.arraycopy(INPUT, 0, passphrase, 0, INPUT.length);
+        System.arraycopy(INPUT, 0, confirmation, 0, INPUT.length);
+
+        final byte[] hashingSalt = pool.acquireBytes(salt.length + pepper.length);
+        System.arraycopy(salt, 0, hashingSalt, 0, salt.length);
+        System.arraycopy(pepper, 0, hashingSalt, salt.length, pepper.length);
+
+        blackhole.consume(ConstantTimeOperations.equals(
+                new NonCopyingCharArraySequencer(passphrase).subSequence(0, INPUT.length),
+                new NonCopyingCharArraySequencer(confirmation).subSequence(0, INPUT.length),
+                32
+        ));
+        blackhole.consume(hashingSalt);
+
+        pool.release(passphrase);
+        pool.release(confirmation);
+        pool.release(hashingSalt);
+    }
+}
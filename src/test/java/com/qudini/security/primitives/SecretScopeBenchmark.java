@@ -0,0 +1,80 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request cost of disposing of a login request's secrets, closing and shredding each one by hand or
+ * registering them all with a {@link SecretScope}. The buffer benchmarks reuse their buffers, so they measure only
+ * the cost of tracking and shredding them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SecretScopeBenchmark {
+
+    private static final String INPUT = "aBCdef123-correct-horse";
+
+    private final ByteBuffer heapBuffer = ByteBuffer.allocate(64);
+    private final ByteBuffer directBuffer = ByteBuffer.allocateDirect(64);
+    private final CharBuffer charBuffer = CharBuffer.allocate(32);
+
+    @Benchmark
+    public void disposeIndividually() {
+        final Passphrase passphrase = Passphrase.attempt(INPUT.toCharArray());
+        final char[] confirmation = INPUT.toCharArray();
+        final byte[] salt = new byte[64];
+        final byte[] pepper = new byte[32];
+        final StringBuilder builder = new StringBuilder(INPUT);
+        try {
+            // Stands in for the request's work with the secrets.
+        } finally {
+            passphrase.close();
+            Shredding.shred(confirmation);
+            Shredding.shred(salt);
+            Shredding.shred(pepper);
+            Shredding.shred(builder);
+        }
+    }
+
+    @Benchmark
+    public void disposeWithScope() {
+        try (SecretScope scope = SecretScope.open()) {
+            scope.register(Passphrase.attempt(INPUT.toCharArray()));
+            scope.register(INPUT.toCharArray());
+            scope.register(new byte[64]);
+            scope.register(new byte[32]);
+            scope.register(new StringBuilder(INPUT));
+        }
+    }
+
+    @Benchmark
+    public void disposeBuffersIndividually() {
+        Shredding.shred(heapBuffer);
+        Shredding.shred(directBuffer);
+        Shredding.shred(charBuffer);
+    }
+
+    @Benchmark
+    public void disposeBuffersWithScope() {
+        try (SecretScope scope = SecretScope.open()) {
+            scope.register(heapBuffer);
+            scope.register(directBuffer);
+            scope.register(charBuffer);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.IntStream.range;
+
+public class SecretScopeTest extends TestCase {
+
+    public void testCloseShredsEveryRegisteredSecret() {
+        final char[] chars;
+        final byte[] bytes;
+        final StringBuilder builder;
+        final ByteBuffer buffer;
+        final SecureCharBuilder secureBuilder;
+        final Passphrase passphrase;
+        try (SecretScope scope = SecretScope.open(ShredPolicy.ZERO)) {
+            chars = scope.register("secret".toCharArray());
+            bytes = scope.register("secret".getBytes());
+            builder = scope.register(new StringBuilder("secret"));
+            buffer = scope.register(ByteBuffer.allocateDirect(64).put("secret".getBytes()));
+            secureBuilder = scope.register(new SecureCharBuilder().append("secret"));
+            passphrase = scope.register(Passphrase.attempt("aBCdef123".toCharArray()));
+            for (int i = 0; i < 20; ++i) {
+                scope.register(new char[16]);
+            }
+            assertEquals(26, scope.size());
+        }
+
+        assertTrue(range(0, chars.length).allMatch(i -> chars[i] == '\0'));
+        assertTrue(range(0, bytes.length).allMatch(i -> bytes[i] == 0));
+        assertTrue(range(0, builder.length()).allMatch(i -> builder.charAt(i) == '\0'));
+        assertTrue(range(0, buffer.capacity()).allMatch(i -> buffer.get(i) == 0));
+        assertEquals(0, secureBuilder.length());
+        assertFalse(passphrase.asStringForLegacyAuthentication().isPresent());
+    }
+
+    public void testMappedBuffersAreShreddedThroughToTheirFiles() throws IOException {
+        final Path file = Files.createTempFile("scope", ".bin");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                try (SecretScope scope = SecretScope.open(ShredPolicy.ZERO)) {
+                    final MappedByteBuffer mapped = scope.register(
+                            channel.map(FileChannel.MapMode.READ_WRITE, 0, 4096)
+                    );
+                    while (mapped.hasRemaining()) {
+                        mapped.put((byte) 'A');
+                    }
+                    final ByteBuffer untyped = scope.register(
+                            (ByteBuffer) channel.map(FileChannel.MapMode.READ_WRITE, 4096, 4096)
+                    );
+                    while (untyped.hasRemaining()) {
+                        untyped.put((byte) 'A');
+                    }
+                    assertEquals(2, scope.size());
+                }
+            }
+            final byte[] contents = Files.readAllBytes(file);
+            assertEquals(2 * 4096, contents.length);
+            assertTrue(range(0, contents.length).allMatch(i -> contents[i] == 0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    public void testSecretsAreShreddedWhenTheBlockThrows() {
+        final char[] chars = "secret".toCharArray();
+        try (SecretScope scope = SecretScope.open(ShredPolicy.ZERO)) {
+            scope.register(chars);
+            throw new IllegalStateException("request failed");
+        } catch (final IllegalStateException expected) {
+        }
+        assertTrue(range(0, chars.length).allMatch(i -> chars[i] == '\0'));
+    }
+
+    public void testRegisteringAfterCloseShredsImmediately() {
+        final SecretScope scope = SecretScope.open(ShredPolicy.ZERO);
+        scope.close();
+        final char[] chars = "secret".toCharArray();
+        try {
+            scope.register(chars);
+            fail("a secret was registered with a closed scope");
+        } catch (final IllegalStateException expected) {
+        }
+        assertTrue(range(0, chars.length).allMatch(i -> chars[i] == '\0'));
+    }
+
+    public void testReadOnlyBuffersAreRejected() {
+        try (SecretScope scope = SecretScope.open()) {
+            scope.register(CharBuffer.wrap("secret"));
+            fail("a read-only buffer was registered");
+        } catch (final IllegalArgumentException expected) {
+        }
+    }
+
+    public void testSecretsAreZeroedWhenTheRandomSourceThrows() {
+        final ShredRandomSource original = Shredding.getRandomSource();
+        Shredding.setRandomSource(new ShredRandomSource() {
+            @Override
+            public void nextBytes(final byte[] bytes, final int offset, final int length) {
+                throw new IllegalStateException("no randomness");
+            }
+
+            @Override
+            public void nextChars(final char[] chars, final int offset, final int length) {
+                throw new IllegalStateException("no randomness");
+            }
+        });
+        final char[] chars = "secret-one".toCharArray();
+        final byte[] bytes = "secret-two".getBytes();
+        try (SecretScope scope = SecretScope.open(ShredPolicy.ZERO_THEN_RANDOM)) {
+            scope.register(chars);
+            scope.register(bytes);
+            scope.register(Passphrase.attempt("aBCdef123".toCharArray()));
+        } catch (final IllegalStateException expected) {
+            assertEquals(2, expected.getSuppressed().length);
+        } finally {
+            Shredding.setRandomSource(original);
+        }
+
+        assertTrue(range(0, chars.length).allMatch(i -> chars[i] == '\0'));
+        assertTrue(range(0, bytes.length).allMatch(i -> bytes[i] == 0));
+    }
+
+    public void testAnErrorFromOneSecretDoesNotStopTheRest() {
+        final ShredRandomSource original = Shredding.getRandomSource();
+        final AtomicInteger draws = new AtomicInteger();
+
+        // Throw an Error for the first draw, from the buffer shredded first, and draw normally from then on.
+        Shredding.setRandomSource(new ShredRandomSource() {
+            @Override
+            public void nextBytes(final byte[] bytes, final int offset, final int length) {
+                if (draws.getAndIncrement() == 0) {
+                    throw new StackOverflowError("thrown by a test random source");
+                }
+                original.nextBytes(bytes, offset, length);
+            }
+
+            @Override
+            public void nextChars(final char[] chars, final int offset, final int length) {
+                original.nextChars(chars, offset, length);
+            }
+        });
+        final char[] chars = "secret".toCharArray();
+        final CharBuffer buffer = CharBuffer.wrap("secret".toCharArray());
+        final SecretScope scope = SecretScope.open(ShredPolicy.ZERO_THEN_RANDOM);
+        scope.register(ByteBuffer.allocate(16));
+        scope.register(buffer);
+        scope.register(chars);
+        try {
+            scope.close();
+            fail("closing did not rethrow the Error");
+        } catch (final StackOverflowError expected) {
+        } finally {
+            Shredding.setRandomSource(original);
+        }
+
+        assertFalse(new String(chars).equals("secret"));
+        assertFalse(buffer.clear().toString().equals("secret"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending a secret character by character and in chunks, starting from the default capacity so growth is included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SecureCharBuilderBenchmark {
+
+    @Param({"32", "1024"})
+    public int size;
+
+    private char[] chars;
+    private String chunk;
+
+    @Setup
+    public void setUp() {
+        chars = new char[size];
+        Arrays.fill(chars, 'x');
+        chunk = "0123456789abcdef";
+    }
+
+    @Benchmark
+    public int stringBuilderAppendChars() {
+        final StringBuilder builder = new StringBuilder();
+        for (final char c : chars) {
+            builder.append(c);
+        }
+        return builder.length();
+    }
+
+    @Benchmark
+    public int secureCharBuilderAppendChars() {
+        final SecureCharBuilder builder = new SecureCharBuilder();
+        for (final char c : chars) {
+            builder.append(c);
+        }
+        return builder.length();
+    }
+
+    @Benchmark
+    public int presizedSecureCharBuilderAppendChars() {
+        final SecureCharBuilder builder = new SecureCharBuilder(size);
+        for (final char c : chars) {
+            builder.append(c);
+        }
+        return builder.length();
+    }
+
+    @Benchmark
+    public int stringBuilderAppendChunks() {
+        final StringBuilder builder = new StringBuilder();
+        for (int n = size / chunk.length(); 0 < n; --n) {
+            builder.append(chunk);
+        }
+        return builder.length();
+    }
+
+    @Benchmark
+    public int secureCharBuilderAppendChunks() {
+        final SecureCharBuilder builder = new SecureCharBuilder();
+        for (int n = size / chunk.length(); 0 < n; --n) {
+            builder.append(chunk);
+        }
+        return builder.length();
+    }
+}
@@ -1,7 +1,34 @@
 package com.qudini.security.primitives;
 
+import com.password4j.Password;
+import com.password4j.ScryptFunction;
 import junit.framework.TestCase;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.IntStream.range;
 
 public class SecurityPrimitivesTest extends TestCase {
@@ -93,6 +120,432 @@ public class SecurityPrimitivesTest extends TestCase {
         assertFalse(allAs);
     }
 
+    public void testShreddingBytesChangesArray() {
+        final byte[] bytes = new byte[256];
+        Arrays.fill(bytes, (byte) 'A');
+        Shredding.shred(bytes);
+
+        boolean allAs = range(0, bytes.length).allMatch(i -> bytes[i] == 'A');
+        assertFalse(allAs);
+    }
+
+    public void testShreddingStringBuilderChangesContents() {
+        final StringBuilder builder = new StringBuilder();
+        range(0, 3000).forEach(i -> builder.append('A'));
+        Shredding.shred(builder);
+
+        assertEquals(3000, builder.length());
+        assertFalse(builder.chars().allMatch(c -> c == 'A'));
+    }
+
+    public void testShredRandomSourcesOnlyWriteRequestedRange() {
+        for (final ShredRandomSource source : asList(
+                ShredRandomSource.keystream(),
+                ShredRandomSource.of(new SecureRandom())
+        )) {
+            final byte[] bytes = new byte[64];
+            source.nextBytes(bytes, 8, 48);
+            assertTrue(range(0, 8).allMatch(i -> bytes[i] == 0));
+            assertTrue(range(56, 64).allMatch(i -> bytes[i] == 0));
+            assertFalse(range(8, 56).allMatch(i -> bytes[i] == 0));
+
+            final char[] chars = new char[20000];
+            source.nextChars(chars, 1, chars.length - 2);
+            assertEquals('\0', chars[0]);
+            assertEquals('\0', chars[chars.length - 1]);
+            assertFalse(range(1, chars.length - 1).allMatch(i -> chars[i] == '\0'));
+
+            try {
+                source.nextBytes(bytes, 60, 8);
+                fail("an out-of-bounds range was accepted");
+            } catch (final IndexOutOfBoundsException expected) {
+            }
+        }
+    }
+
+    public void testShreddingUsesConfiguredRandomSource() {
+        final ShredRandomSource original = Shredding.getRandomSource();
+
+        // A stand-in for a mandated provider, whose every byte can be recognised in what is written.
+        final AtomicInteger draws = new AtomicInteger();
+        final SecureRandom random = new SecureRandom() {
+            @Override
+            public void nextBytes(final byte[] bytes) {
+                draws.incrementAndGet();
+                Arrays.fill(bytes, (byte) 0x5A);
+            }
+        };
+        final char[] chars = "secret-secret-secret".toCharArray();
+        final byte[] bytes = "secret-secret-secret".getBytes(StandardCharsets.UTF_8);
+        try {
+            Shredding.setRandomSource(ShredRandomSource.of(random));
+            Shredding.shred(chars, ShredPolicy.RANDOM);
+            Shredding.shred(bytes, ShredPolicy.ZERO_THEN_RANDOM);
+        } finally {
+            Shredding.setRandomSource(original);
+        }
+        assertSame(original, Shredding.getRandomSource());
+
+        assertTrue(0 < draws.get());
+        assertTrue(range(0, chars.length).allMatch(i -> chars[i] == 0x5A5A));
+        assertTrue(range(0, bytes.length).allMatch(i -> bytes[i] == 0x5A));
+    }
+
+    public void testShredAllShredsEverySecret() {
+        final byte[] salt = new byte[64];
+        final char[] confirmation = new char[32];
+        final StringBuilder builder = new StringBuilder("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+        final byte[] scratch = new byte[5 * 1024 * 1024];
+        Arrays.fill(salt, (byte) 'A');
+        Arrays.fill(confirmation, 'A');
+        Arrays.fill(scratch, (byte) 'A');
+
+        Shredding.shredAll(asList(salt, confirmation, builder, scratch));
+
+        assertFalse(range(0, salt.length).allMatch(i -> salt[i] == 'A'));
+        assertFalse(range(0, confirmation.length).allMatch(i -> confirmation[i] == 'A'));
+        assertFalse(builder.chars().allMatch(c -> c == 'A'));
+
+        // Every segment of a parallel shred must be written, not just the first.
+        final int segments = 5;
+        for (int segment = 0; segment < segments; ++segment) {
+            final int from = segment * (scratch.length / segments);
+            assertFalse(range(from, from + 1024).allMatch(i -> scratch[i] == 'A'));
+        }
+    }
+
+    public void testShredAllShredsIterablesThatCanOnlyBeWalkedOnce() {
+        final List<char[]> secrets = range(0, 20).mapToObj(i -> "AAAAAAAA".toCharArray()).collect(toList());
+        final Iterator<char[]> remaining = secrets.iterator();
+
+        final Iterable<char[]> once = () -> remaining;
+        Shredding.shredAll(once);
+
+        assertFalse(remaining.hasNext());
+        for (final char[] secret : secrets) {
+            assertFalse(new String(secret).equals("AAAAAAAA"));
+        }
+    }
+
+    public void testShredAllRejectsUnsupportedTypesWithoutShredding() {
+        final char[] chars = "AAAAAAAA".toCharArray();
+        try {
+            Shredding.shredAll(asList(chars, "AAAAAAAA"));
+            fail("an immutable string was accepted for shredding");
+        } catch (final IllegalArgumentException expected) {
+        }
+        assertEquals("AAAAAAAA", new String(chars));
+    }
+
+    public void testShreddingBuffersInPlace() throws IOException {
+        final ByteBuffer heap = ByteBuffer.wrap(new byte[20000]);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(20000);
+        for (final ByteBuffer buffer : asList(heap, direct)) {
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 'A');
+            }
+            buffer.position(10).limit(20);
+
+            Shredding.shred(buffer);
+
+            assertEquals(10, buffer.position());
+            assertEquals(20, buffer.limit());
+            buffer.clear();
+            assertFalse(range(0, buffer.capacity()).allMatch(i -> buffer.get(i) == 'A'));
+            assertFalse(range(buffer.capacity() - 64, buffer.capacity()).allMatch(i -> buffer.get(i) == 'A'));
+        }
+
+        final CharBuffer chars = ByteBuffer.allocateDirect(20000).asCharBuffer();
+        while (chars.hasRemaining()) {
+            chars.put('A');
+        }
+        Shredding.shred(chars);
+        assertEquals(chars.capacity(), chars.position());
+        chars.clear();
+        assertFalse(range(chars.capacity() - 64, chars.capacity()).allMatch(i -> chars.get(i) == 'A'));
+
+        try {
+            Shredding.shred(CharBuffer.wrap("AAAA"));
+            fail("a read-only buffer was accepted for shredding");
+        } catch (final ReadOnlyBufferException expected) {
+        }
+
+        final Path file = Files.createTempFile("shredding", ".bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, 4096);
+            while (mapped.hasRemaining()) {
+                mapped.put((byte) 'A');
+            }
+            Shredding.shred(mapped);
+        }
+        final byte[] contents = Files.readAllBytes(file);
+        Files.delete(file);
+        assertEquals(4096, contents.length);
+        assertFalse(range(0, contents.length).allMatch(i -> contents[i] == 'A'));
+    }
+
+    public void testShreddingFileRangesThroughChannels() throws IOException {
+        final byte[] original = new byte[3 * 1024 * 1024 + 17];
+        Arrays.fill(original, (byte) 'A');
+        final Path file = Files.createTempFile("shredding", ".bin");
+        try {
+            Files.write(file, original);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                channel.position(5);
+                Shredding.shred(channel, 100, original.length - 200, ShredPolicy.ZERO);
+                assertEquals(5, channel.position());
+
+                try {
+                    Shredding.shred(channel, 100, original.length);
+                    fail("a range past the end of the file was accepted for shredding");
+                } catch (final IndexOutOfBoundsException expected) {
+                }
+            }
+
+            final byte[] contents = Files.readAllBytes(file);
+            assertEquals(original.length, contents.length);
+            assertTrue(range(0, 100).allMatch(i -> contents[i] == 'A'));
+            assertTrue(range(100, contents.length - 100).allMatch(i -> contents[i] == 0));
+            assertTrue(range(contents.length - 100, contents.length).allMatch(i -> contents[i] == 'A'));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public void testShreddingFilesByPath() throws IOException {
+        final byte[] original = new byte[20000];
+        Arrays.fill(original, (byte) 'A');
+        final Path file = Files.createTempFile("shredding", ".bin");
+        try {
+            Files.write(file, original);
+            Shredding.shred(file);
+            final byte[] contents = Files.readAllBytes(file);
+            assertEquals(original.length, contents.length);
+            assertFalse(range(contents.length - 64, contents.length).allMatch(i -> contents[i] == 'A'));
+
+            Shredding.shred(file, ShredPolicy.RANDOM, FileShredOption.TRUNCATE);
+            assertEquals(0, Files.size(file));
+
+            Files.write(file, original);
+            Shredding.shred(file, FileShredOption.TRUNCATE, FileShredOption.DELETE);
+            assertFalse(Files.exists(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public void testShredPolicies() {
+        final byte[] zeroed = "secret".getBytes();
+        Shredding.shred(zeroed, ShredPolicy.ZERO);
+        assertTrue(range(0, zeroed.length).allMatch(i -> zeroed[i] == 0));
+
+        final StringBuilder builder = new StringBuilder("secret");
+        Shredding.shred(builder, ShredPolicy.ZERO);
+        assertTrue(builder.chars().allMatch(c -> c == '\0'));
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(64);
+        direct.put((byte) 1);
+        Shredding.shred(direct, ShredPolicy.ZERO);
+        assertTrue(range(0, direct.capacity()).allMatch(i -> direct.get(i) == 0));
+
+        for (final ShredPolicy policy : asList(
+                ShredPolicy.RANDOM,
+                ShredPolicy.ZERO_THEN_RANDOM,
+                ShredPolicy.multiPass(3)
+        )) {
+            final char[] chars = new char[256];
+            Arrays.fill(chars, 'A');
+            Shredding.shred(chars, policy);
+            assertFalse(range(0, chars.length).allMatch(i -> chars[i] == 'A' || chars[i] == '\0'));
+        }
+
+        assertEquals(ShredPolicy.ZERO_THEN_RANDOM, ShredPolicy.multiPass(1));
+        assertEquals(ShredPolicy.multiPass(3), ShredPolicy.multiPass(3));
+        assertEquals("MULTI_PASS(3)", ShredPolicy.multiPass(3).toString());
+        try {
+            ShredPolicy.multiPass(0);
+            fail("a policy with no passes was accepted");
+        } catch (final IllegalArgumentException expected) {
+        }
+    }
+
+    public void testShreddingUsesConfiguredDefaultPolicy() {
+        final ShredPolicy original = Shredding.getDefaultPolicy();
+        try {
+            Shredding.setDefaultPolicy(ShredPolicy.ZERO);
+            final char[] chars = "secret".toCharArray();
+            Shredding.shred(chars);
+            assertTrue(range(0, chars.length).allMatch(i -> chars[i] == '\0'));
+        } finally {
+            Shredding.setDefaultPolicy(original);
+        }
+    }
+
+    public void testSecretBufferPoolReusesShreddedArrays() {
+        final SecretBufferPool pool = SecretBufferPool.create(1024, 2, 2);
+
+        final char[] chars = pool.acquireChars(20);
+        assertEquals(32, chars.length);
+        Arrays.fill(chars, 'A');
+        pool.release(chars);
+        assertFalse(range(0, chars.length).allMatch(i -> chars[i] == 'A'));
+        assertSame(chars, pool.acquireChars(17));
+
+        assertEquals(16, pool.acquireBytes(0).length);
+        assertEquals(1024, pool.acquireBytes(1024).length);
+
+        final byte[] oversized = pool.acquireBytes(1025);
+        assertEquals(1025, oversized.length);
+        pool.release(oversized);
+        assertNotSame(oversized, pool.acquireBytes(1025));
+    }
+
+    public void testHashingIsRepeatableWithPooledSaltBuffers() {
+        final byte[] salt = new byte[64];
+        final byte[] pepper = new byte[32];
+        Arrays.fill(salt, (byte) 's');
+        Arrays.fill(pepper, (byte) 'p');
+
+        try (Passphrase passphrase = Passphrase.attempt("aBCdef123".toCharArray())) {
+            final byte[] first = passphrase.hash(salt, pepper, 16, 8, 1, 32);
+            final byte[] second = passphrase.hash(salt, pepper, 16, 8, 1, 32);
+            assertTrue(Arrays.equals(first, second));
+
+            final byte[] expected = Base64.getEncoder().encode(Password.hash("aBCdef123")
+                    .addSalt(new String(salt) + new String(pepper))
+                    .with(ScryptFunction.getInstance(16, 8, 1, 32))
+                    .getBytes());
+            assertTrue(Arrays.equals(expected, first));
+        }
+    }
+
+    public void testSecureCharBuilderAppendsItselfWhileGrowing() {
+        final SecureCharBuilder builder = new SecureCharBuilder();
+        for (int i = 0; i < builder.capacity(); ++i) {
+            builder.append('x');
+        }
+        builder.append(builder.subSequence(0, 4));
+        assertEquals(68, builder.length());
+        assertTrue(range(0, builder.length()).allMatch(i -> builder.charAt(i) == 'x'));
+
+        final SecureCharBuilder full = new SecureCharBuilder(4).append("abcd");
+        full.append(CharBuffer.wrap(full.subSequence(1, 3)));
+        assertTrue(ConstantTimeOperations.equals(full, "abcdbc", 0));
+    }
+
+    public void testSecureCharBuilderAppendsNullAsAppendableDoes() {
+        final SecureCharBuilder builder = new SecureCharBuilder()
+                .append((CharSequence) null)
+                .append((CharSequence) null, 1, 3);
+        assertTrue(ConstantTimeOperations.equals(builder, "nullul", 0));
+    }
+
+    public void testSecureCharBuilderAppendsAndShredsOnGrowth() {
+        final SecureCharBuilder builder = new SecureCharBuilder(4);
+        builder.append('a').append("BCd".toCharArray()).append("ef1", 0, 3).append(CharBuffer.wrap("23"));
+
+        final CharBuffer buffer = CharBuffer.wrap("!?");
+        builder.append(buffer);
+        assertEquals(0, buffer.position());
+
+        assertEquals(11, builder.length());
+        assertTrue(ConstantTimeOperations.equals(builder, "aBCdef123!?", 0));
+        assertTrue(ConstantTimeOperations.equals(builder.subSequence(1, 4), "BCd", 0));
+
+        builder.setLength(9);
+        assertTrue(ConstantTimeOperations.equals(builder, "aBCdef123", 0));
+        assertFalse(("" + builder).contains("aBC"));
+        assertEquals(new SecureCharBuilder().append("other").toString(), builder.toString());
+
+        try {
+            builder.charAt(9);
+            fail("a character past the length was readable");
+        } catch (final IndexOutOfBoundsException expected) {
+        }
+
+        try (Passphrase passphrase = Passphrase.create(builder)) {
+            assertEquals(0, builder.length());
+            assertTrue(passphrase.equals(Passphrase.attempt("aBCdef123"), 64));
+            assertFalse(passphrase.equals(Passphrase.attempt("aBCdef1234"), 64));
+            assertEquals("aBCdef123", passphrase.asStringForLegacyAuthentication().get());
+        }
+    }
+
+    public void testUnclosedPassphrasesAreShreddedOnceCollected() throws InterruptedException {
+        final char[] chars = "aBCdef123".toCharArray();
+        abandon(Passphrase.attempt(chars));
+
+        for (int attempt = 0; attempt < 100 && new String(chars).equals("aBCdef123"); ++attempt) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertFalse(new String(chars).equals("aBCdef123"));
+    }
+
+    public void testPassphrasesAbandonedByExitedThreadsAreShredded() throws InterruptedException {
+        final char[] chars = "aBCdef123".toCharArray();
+        final Thread thread = new Thread(() -> abandon(Passphrase.attempt(chars)));
+        thread.start();
+        thread.join();
+
+        // The cleaner takes over a dead thread's registrations on its next sweep, once a second.
+        for (int attempt = 0; attempt < 150 && new String(chars).equals("aBCdef123"); ++attempt) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertFalse(new String(chars).equals("aBCdef123"));
+    }
+
+    public void testUnclosedPassphrasesAreShreddedAfterAShredThrowsAnError() throws InterruptedException {
+        final CountDownLatch thrown = new CountDownLatch(1);
+        final ShredRandomSource previous = Shredding.getRandomSource();
+        Shredding.setRandomSource(new ShredRandomSource() {
+            @Override
+            public void nextBytes(final byte[] bytes, final int offset, final int length) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void nextChars(final char[] chars, final int offset, final int length) {
+                thrown.countDown();
+                throw new StackOverflowError("thrown by a test random source");
+            }
+        });
+        try {
+            abandon(Passphrase.attempt("aBCdef123".toCharArray()));
+            for (int attempt = 0; attempt < 100 && 0 < thrown.getCount(); ++attempt) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            assertEquals(0, thrown.getCount());
+        } finally {
+            Shredding.setRandomSource(previous);
+        }
+
+        final char[] chars = "aBCdef123".toCharArray();
+        abandon(Passphrase.attempt(chars));
+        for (int attempt = 0; attempt < 100 && new String(chars).equals("aBCdef123"); ++attempt) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertFalse(new String(chars).equals("aBCdef123"));
+    }
+
+    public void testCancelledCleanerRegistrationsDoNotShred() throws InterruptedException {
+        final char[] chars = "aBCdef123".toCharArray();
+        final SecretCleaner.Registration registration = SecretCleaner.register(new Object(), chars);
+        assertTrue(registration.cancel());
+        assertFalse(registration.cancel());
+
+        System.gc();
+        Thread.sleep(50);
+        assertEquals("aBCdef123", new String(chars));
+    }
+
+    private static void abandon(final Passphrase passphrase) {
+        assertNotNull(passphrase);
+    }
+
     public void testNopReturnsZero() {
         assertEquals(0, ConstantTimeOperations.nop(0));
         assertEquals(0, ConstantTimeOperations.nop(10));
@@ -123,4 +576,286 @@ public class SecurityPrimitivesTest extends TestCase {
                 26
         ));
     }
+
+    public void testConstantTimeEqualityOfCharRangesStringsAndBuffers() {
+        final char[] padded = "--secret--".toCharArray();
+        final char[] secret = "secret".toCharArray();
+        assertTrue(ConstantTimeOperations.equals(padded, 2, 6, secret, 0, 6, 32));
+        assertFalse(ConstantTimeOperations.equals(padded, 1, 6, secret, 0, 6, 32));
+        assertFalse(ConstantTimeOperations.equals(padded, 2, 5, secret, 0, 6, 32));
+        try {
+            ConstantTimeOperations.equals(padded, 5, 6, secret, 0, 6, 32);
+            fail("a range past the end of the array was accepted");
+        } catch (final IndexOutOfBoundsException expected) {
+        }
+
+        assertTrue(ConstantTimeOperations.equals("secret", "secret", 0));
+        assertFalse(ConstantTimeOperations.equals("secret", "secreT", 0));
+        assertFalse(ConstantTimeOperations.equals("secret", "secret!", 64));
+
+        final CharBuffer heap = CharBuffer.wrap(padded, 2, 6);
+        final CharBuffer direct = ByteBuffer.allocateDirect(32).asCharBuffer();
+        direct.put(secret).flip();
+        assertTrue(ConstantTimeOperations.equals(heap, direct, 0));
+        assertTrue(ConstantTimeOperations.equals(heap.slice(), CharBuffer.wrap(secret), 0));
+        assertTrue(ConstantTimeOperations.equals(heap.asReadOnlyBuffer(), CharBuffer.wrap(secret), 0));
+        assertEquals(2, heap.position());
+        heap.limit(7);
+        assertFalse(ConstantTimeOperations.equals(heap, direct, 0));
+        heap.limit(8);
+
+        // Every pairing of sequence types, through the CharSequence overload.
+        final NonCopyingCharArraySequencer sequencer = new NonCopyingCharArraySequencer(padded);
+        final SecureCharBuilder builder = new SecureCharBuilder().append(secret);
+        final List<CharSequence> equal = asList(
+                "secret",
+                new StringBuilder("secret"),
+                sequencer.subSequence(2, 8),
+                sequencer.subSequence(1, 9).subSequence(1, 7),
+                builder,
+                heap,
+                direct,
+                CharBuffer.wrap("secret")
+        );
+        for (final CharSequence xs : equal) {
+            for (final CharSequence ys : equal) {
+                assertTrue(xs.getClass() + " vs " + ys.getClass(), ConstantTimeOperations.equals(xs, ys, 0));
+                assertFalse(ConstantTimeOperations.equals(xs, ys.subSequence(0, 5), 0));
+                assertFalse(ConstantTimeOperations.equals(xs, "secreT", 16));
+            }
+        }
+    }
+
+    public void testConstantTimeUtf8Equality() {
+        final List<String> texts = asList(
+                "",
+                "a",
+                "token-0123456789",
+                "caf\u00e9 \u00fcber \u00df",
+                "\u65e5\u672c\u8a9e\u30c6\u30ad\u30b9\u30c8",
+                "\u007f\u0080\u07ff\u0800\uffff",
+                "\ud83d\udd11 key \ud800\udc00\udbff\udfff"
+        );
+        for (final String text : texts) {
+            final byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            assertTrue(text, ConstantTimeOperations.equalsUtf8(text, utf8, 0));
+            assertTrue(text, ConstantTimeOperations.equalsUtf8(new StringBuilder(text), utf8, 256));
+            for (final ByteOrder order : asList(ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN)) {
+                // Offset by one, so that the words read from the buffer are not aligned.
+                final ByteBuffer buffer = ByteBuffer.allocateDirect(utf8.length + 1).order(order);
+                buffer.position(1);
+                buffer.put(utf8).position(1);
+                assertTrue(text, ConstantTimeOperations.equalsUtf8(text, buffer, 0));
+                if (0 < utf8.length) {
+                    buffer.put(buffer.limit() - 1, (byte) (utf8[utf8.length - 1] ^ 1));
+                    assertFalse(text, ConstantTimeOperations.equalsUtf8(text, buffer, 0));
+                }
+            }
+
+            for (int i = 0; i < utf8.length; ++i) {
+                final byte[] changed = utf8.clone();
+                changed[i] ^= 1;
+                assertFalse(text, ConstantTimeOperations.equalsUtf8(text, changed, 0));
+            }
+            if (0 < utf8.length) {
+                assertFalse(text, ConstantTimeOperations.equalsUtf8(text, Arrays.copyOf(utf8, utf8.length - 1), 0));
+            }
+            assertFalse(text, ConstantTimeOperations.equalsUtf8(text, Arrays.copyOf(utf8, utf8.length + 1), 0));
+            assertFalse(text, ConstantTimeOperations.equalsUtf8(text + "a", utf8, 0));
+        }
+
+        // Overlong and CESU-8 forms decode to the same characters in lenient decoders, but are not UTF-8.
+        assertFalse(ConstantTimeOperations.equalsUtf8("/", new byte[]{(byte) 0xC0, (byte) 0xAF}, 0));
+        assertFalse(ConstantTimeOperations.equalsUtf8("\0", new byte[]{(byte) 0xC0, (byte) 0x80}, 0));
+        assertFalse(ConstantTimeOperations.equalsUtf8(
+                "\ud800\udc00",
+                new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80, (byte) 0xED, (byte) 0xB0, (byte) 0x80},
+                0
+        ));
+
+        // Unpaired surrogates have no UTF-8 encoding, so match nothing, not even what encoders replace them with.
+        for (final String unpaired : asList("\ud800", "\udc00", "a\ud800b", "\udc00\ud800", "\ud800\ud800\udc00")) {
+            assertFalse(ConstantTimeOperations.equalsUtf8(unpaired, unpaired.getBytes(StandardCharsets.UTF_8), 0));
+            assertFalse(ConstantTimeOperations.equalsUtf8(unpaired, new byte[0], 0));
+        }
+
+        final byte[] packet = "--caf\u00e9--".getBytes(StandardCharsets.UTF_8);
+        assertTrue(ConstantTimeOperations.equalsUtf8("caf\u00e9", packet, 2, 5, 0));
+        assertFalse(ConstantTimeOperations.equalsUtf8("caf\u00e9", packet, 2, 4, 0));
+        try {
+            ConstantTimeOperations.equalsUtf8("caf\u00e9", packet, 5, 5, 0);
+            fail("a range past the end of the array was accepted");
+        } catch (final IndexOutOfBoundsException expected) {
+        }
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(packet.length);
+        direct.put(packet).position(2).limit(7);
+        final CharSequence sequencer = new NonCopyingCharArraySequencer("caf\u00e9".toCharArray());
+        assertTrue(ConstantTimeOperations.equalsUtf8(sequencer, direct, 0));
+        assertEquals(2, direct.position());
+        assertTrue(ConstantTimeOperations.equalsUtf8("", ByteBuffer.allocate(0), 8));
+
+        try (Passphrase passphrase = Passphrase.attempt("p\u00e4ssw\u00f6rd \ud83d\udd11")) {
+            assertTrue(passphrase.equalsUtf8("p\u00e4ssw\u00f6rd \ud83d\udd11".getBytes(StandardCharsets.UTF_8), 64));
+            assertFalse(passphrase.equalsUtf8("passwort".getBytes(StandardCharsets.UTF_8), 64));
+        }
+    }
+
+    public void testConstantTimeByteEqualityCheck() {
+        assertTrue(ConstantTimeOperations.equals(new byte[]{}, new byte[]{}, 0));
+
+        // Cover every alignment of the tail left over after whole words, and differences in each position.
+        for (int length = 1; length <= 40; ++length) {
+            final byte[] xs = new byte[length];
+            new SecureRandom().nextBytes(xs);
+            assertTrue(ConstantTimeOperations.equals(xs, xs.clone(), 0));
+            assertTrue(ConstantTimeOperations.equals(xs, xs.clone(), 1000));
+
+            for (int i = 0; i < length; ++i) {
+                final byte[] ys = xs.clone();
+                ys[i] ^= 1;
+                assertFalse(ConstantTimeOperations.equals(xs, ys, length));
+            }
+            assertFalse(ConstantTimeOperations.equals(xs, Arrays.copyOf(xs, length - 1), 64));
+        }
+
+        // A trailing 0xFF byte must not be mistaken for the padding past the end of the shorter array.
+        assertFalse(ConstantTimeOperations.equals(new byte[]{1, (byte) 0xFF}, new byte[]{1}, 0));
+    }
+
+    public void testConstantTimeEqualityOfRangesAndBuffers() {
+        final byte[] packet = "header:0123456789abcdef0123456789".getBytes();
+        final byte[] mac = "--0123456789abcdef0123456789--".getBytes();
+        assertTrue(ConstantTimeOperations.equals(packet, 7, 26, mac, 2, 26, 32));
+        assertFalse(ConstantTimeOperations.equals(packet, 7, 26, mac, 1, 26, 32));
+        assertFalse(ConstantTimeOperations.equals(packet, 7, 26, mac, 2, 25, 32));
+
+        try {
+            ConstantTimeOperations.equals(packet, 8, 26, mac, 2, 26, 32);
+            fail("a range past the end of the array was accepted");
+        } catch (final IndexOutOfBoundsException expected) {
+        }
+
+        final ByteBuffer heap = ByteBuffer.wrap(packet, 7, 26);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(mac.length);
+        direct.put(mac).position(2).limit(28);
+        assertTrue(ConstantTimeOperations.equals(heap, direct, 32));
+        assertTrue(ConstantTimeOperations.equals(direct, heap.slice(), 0));
+        assertEquals(7, heap.position());
+        assertEquals(2, direct.position());
+
+        direct.order(ByteOrder.LITTLE_ENDIAN);
+        assertTrue(ConstantTimeOperations.equals(heap, direct, 32));
+
+        direct.limit(27);
+        assertFalse(ConstantTimeOperations.equals(heap, direct, 32));
+    }
+
+    public void testConstantTimeIndexOf() {
+        final SecureRandom random = new SecureRandom();
+        for (final int length : new int[]{1, 7, 8, 9, 32}) {
+            final byte[][] haystack = new byte[20][length];
+            final byte[] packed = new byte[haystack.length * length];
+            for (int i = 0; i < haystack.length; ++i) {
+                random.nextBytes(haystack[i]);
+                haystack[i][0] = (byte) i;
+                System.arraycopy(haystack[i], 0, packed, i * length, length);
+            }
+
+            for (int i = 0; i < haystack.length; ++i) {
+                final byte[] candidate = haystack[i].clone();
+                assertEquals(i, ConstantTimeOperations.indexOf(candidate, haystack));
+                assertEquals(i, ConstantTimeOperations.indexOf(candidate, packed, length));
+
+                candidate[length - 1] ^= (byte) 0x80;
+                assertEquals(-1, ConstantTimeOperations.indexOf(candidate, haystack));
+                assertEquals(-1, ConstantTimeOperations.indexOf(candidate, packed, length));
+            }
+
+            final byte[] longer = Arrays.copyOf(haystack[3], length + 1);
+            assertEquals(-1, ConstantTimeOperations.indexOf(longer, haystack));
+            assertEquals(-1, ConstantTimeOperations.indexOf(longer, packed, length));
+            assertEquals(-1, ConstantTimeOperations.indexOf(Arrays.copyOf(haystack[3], length - 1), packed, length));
+        }
+
+        // Entries of mixed lengths, where a shorter entry is a prefix of the candidate.
+        final byte[][] mixed = {{1, 2}, {1, 2, 3}, {}, {1, 2, 3}};
+        assertEquals(3, ConstantTimeOperations.indexOf(new byte[]{1, 2, 3}, mixed));
+        assertEquals(2, ConstantTimeOperations.indexOf(new byte[0], mixed));
+        assertEquals(-1, ConstantTimeOperations.indexOf(new byte[]{1}, new byte[0][]));
+        assertEquals(-1, ConstantTimeOperations.indexOf(new byte[]{1}, new byte[0], 1));
+
+        try {
+            ConstantTimeOperations.indexOf(new byte[4], new byte[10], 4);
+            fail("a packed haystack of partial entries was accepted");
+        } catch (final IllegalArgumentException expected) {
+        }
+    }
+
+    public void testConstantTimeEqualityOfStreams() throws IOException {
+        final SecureRandom random = new SecureRandom();
+        for (final int length : new int[]{0, 1, 65535, 65536, 65537, 200000}) {
+            final byte[] xs = new byte[length];
+            random.nextBytes(xs);
+            final byte[] ys = xs.clone();
+            assertTrue(ConstantTimeOperations.equals(
+                    new ByteArrayInputStream(xs),
+                    new ByteArrayInputStream(ys),
+                    0
+            ));
+            assertTrue(ConstantTimeOperations.equals(
+                    Channels.newChannel(new ByteArrayInputStream(xs)),
+                    Channels.newChannel(new ByteArrayInputStream(ys)),
+                    1000000
+            ));
+            assertFalse(ConstantTimeOperations.equals(
+                    new ByteArrayInputStream(xs),
+                    new ByteArrayInputStream(Arrays.copyOf(ys, length + 1)),
+                    0
+            ));
+
+            if (0 < length) {
+                ys[length - 1] ^= 1;
+                assertFalse(ConstantTimeOperations.equals(
+                        new ByteArrayInputStream(xs),
+                        new ByteArrayInputStream(ys),
+                        0
+                ));
+            }
+        }
+
+        // Streams that return fewer bytes than asked for must still be compared at the same offsets.
+        final byte[] bytes = new byte[100000];
+        random.nextBytes(bytes);
+        final InputStream trickle = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 7));
+            }
+        };
+        assertTrue(ConstantTimeOperations.equals(trickle, new ByteArrayInputStream(bytes), 0));
+    }
+
+    public void testCaseInsensitiveEquality() {
+        assertTrue(ConstantTimeOperations.caseInsensitiveEquals("Alice@Example.COM", "alice@example.com", 64));
+        assertTrue(ConstantTimeOperations.caseInsensitiveEquals("ΣΊΣΥΦΟΣ".toCharArray(), "σίσυφος".toCharArray(), 0));
+        assertFalse(ConstantTimeOperations.caseInsensitiveEquals("Alice", "Alicf", 64));
+        assertFalse(ConstantTimeOperations.caseInsensitiveEquals("alice", "alice2", 0));
+
+        // The first character counts too.
+        assertFalse(ConstantTimeOperations.caseInsensitiveEquals("blice".toCharArray(), "alice".toCharArray(), 0));
+
+        // Agree with String#equalsIgnoreCase for every BMP character and its upper and lower cases.
+        for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; ++i) {
+            final char c = (char) i;
+            if (Character.isSurrogate(c)) {
+                continue;
+            }
+            for (final char other : new char[]{Character.toUpperCase(c), Character.toLowerCase(c), (char) (c + 1)}) {
+                final String xs = String.valueOf(c);
+                final String ys = String.valueOf(other);
+                assertEquals(xs.equalsIgnoreCase(ys), ConstantTimeOperations.caseInsensitiveEquals(xs, ys, 0));
+            }
+        }
+    }
 }
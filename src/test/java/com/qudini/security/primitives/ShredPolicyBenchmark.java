@@ -0,0 +1,71 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shredding throughput per {@link ShredPolicy}, for choosing between hot-path buffers and long-lived key material.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShredPolicyBenchmark {
+
+    @Param({"ZERO", "RANDOM", "ZERO_THEN_RANDOM", "MULTI_PASS_3"})
+    public String policyName;
+
+    @Param({"16", "1024", "1048576"})
+    public int size;
+
+    private ShredPolicy policy;
+    private byte[] bytes;
+    private char[] chars;
+
+    @Setup
+    public void setUp() {
+        switch (policyName) {
+            case "ZERO":
+                policy = ShredPolicy.ZERO;
+                break;
+            case "RANDOM":
+                policy = ShredPolicy.RANDOM;
+                break;
+            case "ZERO_THEN_RANDOM":
+                policy = ShredPolicy.ZERO_THEN_RANDOM;
+                break;
+            case "MULTI_PASS_3":
+                policy = ShredPolicy.multiPass(3);
+                break;
+            default:
+                throw new IllegalArgumentException(policyName);
+        }
+        bytes = new byte[size];
+        chars = new char[size];
+    }
+
+    @Benchmark
+    public byte[] shredBytes() {
+        Shredding.shred(bytes, policy);
+        return bytes;
+    }
+
+    @Benchmark
+    public char[] shredChars() {
+        Shredding.shred(chars, policy);
+        return chars;
+    }
+}
@@ -0,0 +1,136 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shredding throughput by array size. The {@code legacy} benchmarks reproduce the original implementation, which
+ * created a {@link SecureRandom} per call and drew one {@code nextInt()} per element, as a baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShreddingBenchmark {
+
+    @Param({"16", "1024", "1048576"})
+    public int size;
+
+    private byte[] bytes;
+    private char[] chars;
+    private ByteBuffer heapBuffer;
+    private ByteBuffer directBuffer;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[size];
+        chars = new char[size];
+        heapBuffer = ByteBuffer.allocate(size);
+        directBuffer = ByteBuffer.allocateDirect(size);
+    }
+
+    @Benchmark
+    public byte[] shredBytes() {
+        Shredding.shred(bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public char[] shredChars() {
+        Shredding.shred(chars);
+        return chars;
+    }
+
+    @Benchmark
+    public ByteBuffer shredHeapBuffer() {
+        Shredding.shred(heapBuffer);
+        return heapBuffer;
+    }
+
+    @Benchmark
+    public ByteBuffer shredDirectBuffer() {
+        Shredding.shred(directBuffer);
+        return directBuffer;
+    }
+
+    /**
+     * Five small secrets dying together, as in a login request: passphrase, confirmation, salt, pepper copy and the
+     * salt-and-pepper concatenation.
+     */
+    @Benchmark
+    public void shredRequestSecretsIndividually(final RequestSecrets secrets) {
+        Shredding.shred(secrets.passphrase);
+        Shredding.shred(secrets.confirmation);
+        Shredding.shred(secrets.salt);
+        Shredding.shred(secrets.pepper);
+        Shredding.shred(secrets.hashingSalt);
+    }
+
+    @Benchmark
+    public void shredRequestSecretsTogether(final RequestSecrets secrets) {
+        Shredding.shredAll(secrets.passphrase, secrets.confirmation);
+        Shredding.shredAll(secrets.salt, secrets.pepper, secrets.hashingSalt);
+    }
+
+    @Benchmark
+    public byte[] shredLargeScratchSequentially(final LargeScratch scratch) {
+        Shredding.shred(scratch.bytes);
+        return scratch.bytes;
+    }
+
+    @Benchmark
+    public byte[] shredLargeScratchInParallel(final LargeScratch scratch) {
+        Shredding.shredAll(scratch.bytes);
+        return scratch.bytes;
+    }
+
+    @Benchmark
+    public byte[] legacyShredBytes() {
+        Arrays.fill(bytes, (byte) 0);
+        final SecureRandom random = new SecureRandom();
+        for (int i = bytes.length - 1; 0 <= i; --i) {
+            bytes[i] = (byte) (random.nextInt() % Byte.MAX_VALUE);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public char[] legacyShredChars() {
+        Arrays.fill(chars, '\0');
+        final SecureRandom random = new SecureRandom();
+        for (int i = chars.length - 1; 0 <= i; --i) {
+            chars[i] = (char) (random.nextInt() % Character.MAX_VALUE);
+        }
+        return chars;
+    }
+
+    @State(Scope.Thread)
+    public static class RequestSecrets {
+        final char[] passphrase = new char[16];
+        final char[] confirmation = new char[16];
+        final byte[] salt = new byte[64];
+        final byte[] pepper = new byte[32];
+        final byte[] hashingSalt = new byte[96];
+    }
+
+    @State(Scope.Thread)
+    public static class LargeScratch {
+        final byte[] bytes = new byte[16 * 1024 * 1024];
+    }
+}
@@ -0,0 +1,57 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost metrics add to shredding small secrets, where it is proportionally largest. With {@code metrics=off} these
+ * should match {@link ShreddingBenchmark#shredBytes()} at the same size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShreddingMetricsBenchmark {
+
+    @Param({"off", "on"})
+    public String metrics;
+
+    private final byte[] bytes = new byte[16];
+    private final char[] chars = new char[16];
+
+    @Setup
+    public void setUp() {
+        Shredding.setMetrics(metrics.equals("on") ? ShreddingStatistics.create() : null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Shredding.setMetrics(null);
+    }
+
+    @Benchmark
+    public byte[] shredBytes() {
+        Shredding.shred(bytes, ShredPolicy.ZERO);
+        return bytes;
+    }
+
+    @Benchmark
+    public char[] shredChars() {
+        Shredding.shred(chars);
+        return chars;
+    }
+}
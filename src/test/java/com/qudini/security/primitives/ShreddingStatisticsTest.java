@@ -0,0 +1,81 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class ShreddingStatisticsTest extends TestCase {
+
+    public void testRecordsEachOperationOnce() {
+        final ShreddingStatistics statistics = ShreddingStatistics.create();
+        Shredding.setMetrics(statistics);
+        try {
+            Shredding.shred(new byte[10]);
+            Shredding.shred(new byte[20]);
+            Shredding.shred(new char[5]);
+            Shredding.shred(new StringBuilder("secret"));
+            Shredding.shred(ByteBuffer.allocateDirect(64));
+            Shredding.shredAll(Arrays.asList(new byte[3], new char[4], new StringBuilder("ab")));
+        } finally {
+            Shredding.setMetrics(null);
+        }
+        Shredding.shred(new byte[10]);
+
+        assertEquals(2, statistics.getCallCount(ShredOperation.BYTE_ARRAY));
+        assertEquals(30, statistics.getByteCount(ShredOperation.BYTE_ARRAY));
+        assertEquals(5, statistics.getCharCount(ShredOperation.CHAR_ARRAY));
+        assertEquals(6, statistics.getCharCount(ShredOperation.STRING_BUILDER));
+        assertEquals(64, statistics.getByteCount(ShredOperation.BYTE_BUFFER));
+
+        // A batch is reported once, not once per secret in it.
+        assertEquals(1, statistics.getCallCount(ShredOperation.BATCH));
+        assertEquals(3, statistics.getByteCount(ShredOperation.BATCH));
+        assertEquals(6, statistics.getCharCount(ShredOperation.BATCH));
+        assertEquals(1, statistics.getCallCount(ShredOperation.STRING_BUILDER));
+
+        assertEquals(2, Arrays.stream(statistics.getLatencyHistogram(ShredOperation.BYTE_ARRAY)).sum());
+        assertEquals(0, statistics.getCallCount(ShredOperation.FILE));
+        assertEquals(0, statistics.getLatencyNanosAtPercentile(ShredOperation.FILE, 99));
+
+        statistics.reset();
+        assertEquals(0, statistics.getCallCount(ShredOperation.BYTE_ARRAY));
+    }
+
+    public void testLatencyPercentilesRoundUpToBuckets() {
+        final ShreddingStatistics statistics = ShreddingStatistics.create();
+        for (int i = 0; i < 99; ++i) {
+            statistics.record(ShredOperation.BYTE_ARRAY, 16, 0, 100);
+        }
+        statistics.record(ShredOperation.BYTE_ARRAY, 16, 0, 5000);
+
+        assertEquals(128, statistics.getLatencyNanosAtPercentile(ShredOperation.BYTE_ARRAY, 50));
+        assertEquals(128, statistics.getLatencyNanosAtPercentile(ShredOperation.BYTE_ARRAY, 99));
+        assertEquals(8192, statistics.getLatencyNanosAtPercentile(ShredOperation.BYTE_ARRAY, 100));
+        assertEquals(9900 + 5000, statistics.getNanosSpent(ShredOperation.BYTE_ARRAY));
+    }
+
+    public void testExposedOverJmx() throws JMException {
+        final ShreddingStatistics statistics = ShreddingStatistics.create();
+        statistics.record(ShredOperation.CHAR_ARRAY, 0, 42, 10);
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = statistics.registerMBean();
+        try {
+            final TabularData chars = (TabularData) server.getAttribute(name, "CharCounts");
+            final CompositeData row = chars.get(new Object[]{ShredOperation.CHAR_ARRAY.name()});
+            assertEquals(42L, row.get("value"));
+
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0, statistics.getCharCount(ShredOperation.CHAR_ARRAY));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.qudini.security.primitives;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Runs {@link TimingLeakDetector} over every public {@link ConstantTimeOperations} comparison and
+ * {@link Passphrase#equals(Passphrase, int)}, comparing a fixed secret against inputs that either equal it or are
+ * random, and over the {@link ConstantTimePrimitives} that take a secret mask, index or array, fixing it in one class
+ * and drawing it at random in the other. A check whose |t| exceeds the threshold is run again, and is only reported as
+ * a leak if it exceeds it in {@value #RUNS_TO_FAIL} of up to {@value #RUNS} independent runs: a single run over it
+ * is common on a shared machine even for code with no leak, as a burst of noise lands in one class more than the
+ * other. Exits with a failure if any check leaks.
+ * {@link ConstantTimeOperations#nop(long)} is left out as its time is meant to depend on its input.
+ * <p>
+ * Run with {@code make leaks}; arguments are {@code [-samples n] [-batch n] [-threshold t] [regex]}, where the regex
+ * picks the checks to run by name. Results are only meaningful on a quiet machine.
+ */
+final class TimingLeakCheck {
+
+    private static final int LENGTH = 64;
+    private static final int MIN_CHECKS = LENGTH;
+    private static final int HAYSTACK_ENTRIES = 16;
+    private static final int TABLE_SIZE = 256;
+
+    // A leak reproduces; noise rarely lands the same way twice.
+    private static final int RUNS = 3;
+    private static final int RUNS_TO_FAIL = 2;
+
+    private TimingLeakCheck() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static void main(final String[] args) {
+        int samples = 200_000;
+        int batch = 16;
+        double threshold = TimingLeakDetector.DEFAULT_THRESHOLD;
+        Pattern filter = Pattern.compile("");
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "-samples":
+                    samples = Integer.parseInt(args[++i]);
+                    break;
+                case "-batch":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                case "-threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    filter = Pattern.compile(args[i]);
+            }
+        }
+
+        final TimingLeakDetector detector = new TimingLeakDetector(samples, batch);
+        final Random random = new Random();
+        final List<String> leaks = new ArrayList<>();
+        for (final Map.Entry<String, TimingLeakDetector.Subject<?>> check : checks(random).entrySet()) {
+            if (!filter.matcher(check.getKey()).find()) {
+                continue;
+            }
+            // A first run under the threshold passes; one over it is run again until the outcome is settled.
+            final StringBuilder ts = new StringBuilder();
+            int runs = 0;
+            int over = 0;
+            do {
+                final double t = detector.maxT(check.getValue(), random);
+                ts.append(String.format("%8.2f", t));
+                ++runs;
+                if (threshold < t) {
+                    ++over;
+                }
+            } while (0 < over && over < RUNS_TO_FAIL && runs < RUNS);
+            final boolean leaky = RUNS_TO_FAIL <= over;
+            System.out.printf("%-64s max |t| = %-26s %s%n", check.getKey(), ts, leaky ? "LEAK" : "ok");
+            if (leaky) {
+                leaks.add(check.getKey());
+            }
+        }
+
+        if (!leaks.isEmpty()) {
+            System.out.printf(
+                    "%d check(s) over the threshold of %.1f in %d of %d runs: %s%n",
+                    leaks.size(), threshold, RUNS_TO_FAIL, RUNS, leaks
+            );
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, TimingLeakDetector.Subject<?>> checks(final Random random) {
+        final byte[] secretBytes = randomBytes(random, LENGTH);
+        final char[] secretChars = randomChars(random, LENGTH);
+        final String secretString = new String(secretChars);
+        final byte[] secretUtf8 = secretString.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer secretBuffer = ByteBuffer.allocateDirect(LENGTH);
+        secretBuffer.put(secretBytes).flip();
+        final Passphrase secretPassphrase = Passphrase.attempt(secretChars.clone());
+
+        final byte[][] haystack = new byte[HAYSTACK_ENTRIES][];
+        for (int i = 0; i < haystack.length; ++i) {
+            haystack[i] = randomBytes(random, LENGTH);
+        }
+        final byte[] packedHaystack = new byte[HAYSTACK_ENTRIES * LENGTH];
+        for (int i = 0; i < haystack.length; ++i) {
+            System.arraycopy(haystack[i], 0, packedHaystack, i * LENGTH, LENGTH);
+        }
+        final int[] intTable = new int[TABLE_SIZE];
+        for (int i = 0; i < intTable.length; ++i) {
+            intTable[i] = random.nextInt();
+        }
+        final byte[] byteTable = randomBytes(random, TABLE_SIZE);
+
+        final BiFunction<Boolean, Random, byte[]> bytes =
+                (fixed, r) -> fixed ? secretBytes.clone() : randomBytes(r, LENGTH);
+        final BiFunction<Boolean, Random, char[]> chars =
+                (fixed, r) -> fixed ? secretChars.clone() : randomChars(r, LENGTH);
+        final BiFunction<Boolean, Random, byte[]> utf8 = (fixed, r) -> fixed
+                ? secretUtf8.clone()
+                : new String(randomChars(r, LENGTH)).getBytes(StandardCharsets.UTF_8);
+        final BiFunction<Boolean, Random, byte[]> entries =
+                (fixed, r) -> fixed ? haystack[0].clone() : randomBytes(r, LENGTH);
+        final BiFunction<Boolean, Random, Integer> masks = (fixed, r) -> fixed || r.nextBoolean() ? 0 : -1;
+        // Both classes get a fresh holder, as boxing would give the fixed index a cached Integer that stays in cache.
+        final BiFunction<Boolean, Random, int[]> indexes =
+                (fixed, r) -> new int[]{fixed ? 0 : r.nextInt(TABLE_SIZE)};
+        final BiFunction<Boolean, Random, Masked> maskedPairs =
+                (fixed, r) -> new Masked(masks.apply(fixed, r), randomBytes(r, LENGTH), randomBytes(r, LENGTH));
+
+        final Map<String, TimingLeakDetector.Subject<?>> checks = new LinkedHashMap<>();
+        checks.put("equals(char[], char[], int)", subject(
+                chars,
+                candidate -> result(ConstantTimeOperations.equals(secretChars, candidate, MIN_CHECKS))
+        ));
+        checks.put("equals(char[], int, int, char[], int, int, int)", subject(
+                (fixed, r) -> {
+                    final char[] buffer = randomChars(r, 2 * LENGTH);
+                    System.arraycopy(chars.apply(fixed, r), 0, buffer, LENGTH, LENGTH);
+                    return buffer;
+                },
+                buffer -> result(ConstantTimeOperations.equals(
+                        secretChars, 0, LENGTH, buffer, LENGTH, LENGTH, MIN_CHECKS
+                ))
+        ));
+        checks.put("equals(String, String, int)", subject(
+                (fixed, r) -> new String(chars.apply(fixed, r)),
+                candidate -> result(ConstantTimeOperations.equals(secretString, candidate, MIN_CHECKS))
+        ));
+        checks.put("equals(CharBuffer, CharBuffer, int)", subject(
+                (fixed, r) -> CharBuffer.wrap(chars.apply(fixed, r)),
+                candidate -> result(ConstantTimeOperations.equals(
+                        CharBuffer.wrap(secretChars), candidate, MIN_CHECKS
+                ))
+        ));
+        checks.put("equals(CharSequence, CharSequence, int) on StringBuilders", subject(
+                (fixed, r) -> (CharSequence) new StringBuilder().append(chars.apply(fixed, r)),
+                candidate -> result(ConstantTimeOperations.equals(
+                        (CharSequence) new StringBuilder(secretString), candidate, MIN_CHECKS
+                ))
+        ));
+        checks.put("equals(CharSequence, CharSequence, int) on sequencers", subject(
+                (fixed, r) -> (CharSequence) new NonCopyingCharArraySequencer(chars.apply(fixed, r)),
+                candidate -> result(ConstantTimeOperations.equals(
+                        (CharSequence) new NonCopyingCharArraySequencer(secretChars), candidate, MIN_CHECKS
+                ))
+        ));
+        checks.put("caseInsensitiveEquals(char[], char[], int)", subject(
+                chars,
+                candidate -> result(ConstantTimeOperations.caseInsensitiveEquals(secretChars, candidate, MIN_CHECKS))
+        ));
+        checks.put("caseInsensitiveEquals(CharSequence, CharSequence, int)", subject(
+                (fixed, r) -> new String(chars.apply(fixed, r)),
+                candidate -> result(ConstantTimeOperations.caseInsensitiveEquals(secretString, candidate, MIN_CHECKS))
+        ));
+        checks.put("equals(byte[], byte[], int)", subject(
+                bytes,
+                candidate -> result(ConstantTimeOperations.equals(secretBytes, candidate, MIN_CHECKS))
+        ));
+        checks.put("equals(byte[], int, int, byte[], int, int, int)", subject(
+                (fixed, r) -> {
+                    final byte[] packet = randomBytes(r, 2 * LENGTH);
+                    System.arraycopy(bytes.apply(fixed, r), 0, packet, LENGTH, LENGTH);
+                    return packet;
+                },
+                packet -> result(ConstantTimeOperations.equals(
+                        secretBytes, 0, LENGTH, packet, LENGTH, LENGTH, MIN_CHECKS
+                ))
+        ));
+        checks.put("equals(ByteBuffer, ByteBuffer, int)", subject(
+                (fixed, r) -> ByteBuffer.wrap(bytes.apply(fixed, r)),
+                candidate -> result(ConstantTimeOperations.equals(secretBuffer, candidate, MIN_CHECKS))
+        ));
+        checks.put("equals(InputStream, InputStream, long)", subject(
+                bytes,
+                candidate -> {
+                    try {
+                        return result(ConstantTimeOperations.equals(
+                                new ByteArrayInputStream(secretBytes), new ByteArrayInputStream(candidate), MIN_CHECKS
+                        ));
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+        ));
+        checks.put("equals(ReadableByteChannel, ReadableByteChannel, long)", subject(
+                bytes,
+                candidate -> {
+                    try {
+                        return result(ConstantTimeOperations.equals(
+                                Channels.newChannel(new ByteArrayInputStream(secretBytes)),
+                                Channels.newChannel(new ByteArrayInputStream(candidate)),
+                                MIN_CHECKS
+                        ));
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+        ));
+        checks.put("equalsUtf8(CharSequence, byte[], int)", subject(
+                utf8,
+                candidate -> result(ConstantTimeOperations.equalsUtf8(secretString, candidate, MIN_CHECKS))
+        ));
+        checks.put("equalsUtf8(CharSequence, byte[], int, int, int)", subject(
+                (fixed, r) -> {
+                    final byte[] encoded = utf8.apply(fixed, r);
+                    final byte[] packet = randomBytes(r, LENGTH + encoded.length + LENGTH);
+                    System.arraycopy(encoded, 0, packet, LENGTH, encoded.length);
+                    return packet;
+                },
+                packet -> result(ConstantTimeOperations.equalsUtf8(
+                        secretString, packet, LENGTH, packet.length - 2 * LENGTH, MIN_CHECKS
+                ))
+        ));
+        checks.put("equalsUtf8(CharSequence, ByteBuffer, int)", subject(
+                (fixed, r) -> {
+                    final byte[] encoded = utf8.apply(fixed, r);
+                    final ByteBuffer buffer = ByteBuffer.allocateDirect(LENGTH + encoded.length);
+                    buffer.put(randomBytes(r, LENGTH)).put(encoded).position(LENGTH);
+                    return buffer;
+                },
+                buffer -> result(ConstantTimeOperations.equalsUtf8(secretString, buffer, MIN_CHECKS))
+        ));
+        checks.put("indexOf(byte[], byte[][])", subject(
+                entries,
+                candidate -> ConstantTimeOperations.indexOf(candidate, haystack)
+        ));
+        checks.put("indexOf(byte[], byte[], int)", subject(
+                entries,
+                candidate -> ConstantTimeOperations.indexOf(candidate, packedHaystack, LENGTH)
+        ));
+        checks.put("Passphrase.equals(Passphrase, int)", subject(
+                (fixed, r) -> Passphrase.attempt(chars.apply(fixed, r)),
+                candidate -> result(secretPassphrase.equals(candidate, MIN_CHECKS))
+        ));
+        checks.put("ConstantTimePrimitives.select(int, ...)", subject(
+                masks,
+                mask -> ConstantTimePrimitives.select(mask, secretBytes[0], secretBytes[1])
+                        ^ (int) ConstantTimePrimitives.select(mask, (long) secretBytes[2], secretBytes[3])
+                        ^ ConstantTimePrimitives.select(mask, (int) secretBytes[4], secretBytes[5])
+        ));
+        checks.put("ConstantTimePrimitives.conditionalCopy(int, byte[], int, byte[], int, int)", subject(
+                maskedPairs,
+                masked -> {
+                    ConstantTimePrimitives.conditionalCopy(masked.mask, masked.xs, 0, masked.ys, 0, LENGTH);
+                    return masked.ys[0];
+                }
+        ));
+        checks.put("ConstantTimePrimitives.conditionalSwap(int, byte[], byte[])", subject(
+                maskedPairs,
+                masked -> {
+                    ConstantTimePrimitives.conditionalSwap(masked.mask, masked.xs, masked.ys);
+                    return masked.xs[0];
+                }
+        ));
+        checks.put("ConstantTimePrimitives.compare(byte[], byte[], int)", subject(
+                bytes,
+                candidate -> ConstantTimePrimitives.compare(secretBytes, candidate, MIN_CHECKS)
+        ));
+        checks.put("ConstantTimePrimitives.isZero(byte[])", subject(
+                (fixed, r) -> fixed ? new byte[LENGTH] : randomBytes(r, LENGTH),
+                candidate -> result(ConstantTimePrimitives.isZero(candidate))
+        ));
+        checks.put("ConstantTimePrimitives.lookup(int[], int)", subject(
+                indexes,
+                index -> ConstantTimePrimitives.lookup(intTable, index[0])
+        ));
+        checks.put("ConstantTimePrimitives.lookup(byte[], int)", subject(
+                indexes,
+                index -> ConstantTimePrimitives.lookup(byteTable, index[0])
+        ));
+        return checks;
+    }
+
+    private static <T> TimingLeakDetector.Subject<T> subject(
+            final BiFunction<Boolean, Random, T> prepare,
+            final ToIntFunction<T> run
+    ) {
+        return new TimingLeakDetector.Subject<T>() {
+            @Override
+            public T prepare(final boolean fixed, final Random random) {
+                return prepare.apply(fixed, random);
+            }
+
+            @Override
+            public int run(final T input) {
+                return run.applyAsInt(input);
+            }
+        };
+    }
+
+    /**
+     * A secret mask with the two arrays it is applied to.
+     */
+    private static final class Masked {
+
+        final int mask;
+        final byte[] xs;
+        final byte[] ys;
+
+        Masked(final int mask, final byte[] xs, final byte[] ys) {
+            this.mask = mask;
+            this.xs = xs;
+            this.ys = ys;
+        }
+    }
+
+    private static int result(final boolean result) {
+        return result ? 1 : 0;
+    }
+
+    private static byte[] randomBytes(final Random random, final int length) {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static char[] randomChars(final Random random, final int length) {
+        final char[] chars = new char[length];
+        for (int i = 0; i < chars.length; ++i) {
+            chars[i] = (char) random.nextInt(Character.MAX_VALUE + 1);
+        }
+        return chars;
+    }
+}
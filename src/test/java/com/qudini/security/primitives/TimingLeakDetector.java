@@ -0,0 +1,163 @@
+package com.qudini.security.primitives;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Detects timing leaks the way dudect does: time an operation on two classes of input, one fixed and one random,
+ * interleaved at random, and run Welch's t-test on the two timing distributions. A constant-time operation gives no
+ * evidence that the means differ, so |t| stays small; dudect takes |t| above 4.5 as a leak.
+ * <p>
+ * {@link System#nanoTime()} is too coarse for one call of most operations, so each sample times a batch of calls on
+ * the same input. Inputs are prepared outside the timed region, in chunks, so preparing them does not count. The first
+ * samples warm the JIT up and are discarded, apart from setting the cropping thresholds: besides the test on every
+ * sample, tests run on samples below a range of percentiles, since rare long samples from interrupts and GC swamp a
+ * small difference in the rest. The result is the largest |t| over all the tests.
+ */
+final class TimingLeakDetector {
+
+    static final double DEFAULT_THRESHOLD = 4.5;
+
+    private static final int CHUNK = 1000;
+    private static final int CROPS = 10;
+
+    // Each crop's test needs this many samples in both classes before its t is trusted.
+    private static final int MIN_SAMPLES_PER_TEST = 1000;
+
+    @SuppressWarnings("unused")
+    private static volatile int sink;
+
+    private final int samples;
+    private final int warmUpSamples;
+    private final int batch;
+
+    /**
+     * An operation under test, with a way to build its inputs.
+     */
+    interface Subject<T> {
+
+        /**
+         * An input of the fixed class, or of the random class.
+         */
+        T prepare(boolean fixed, Random random);
+
+        /**
+         * Run the operation once, returning something that depends on its result so it is not optimised away.
+         */
+        int run(T input);
+    }
+
+    TimingLeakDetector(final int samples, final int batch) {
+        this.samples = samples;
+        this.warmUpSamples = samples / 10;
+        this.batch = batch;
+    }
+
+    /**
+     * The largest |t| over every test.
+     */
+    <T> double maxT(final Subject<T> subject, final Random random) {
+        final List<T> inputs = new ArrayList<>(CHUNK);
+        final boolean[] fixed = new boolean[CHUNK];
+        final long[] times = new long[CHUNK];
+
+        final long[] warmUpTimes = new long[warmUpSamples];
+        final WelchTest[] tests = new WelchTest[CROPS + 1];
+        long[] crops = null;
+        int sink = 0;
+
+        for (int done = 0; done < samples; done += CHUNK) {
+            final int count = Math.min(CHUNK, samples - done);
+            inputs.clear();
+            for (int i = 0; i < count; ++i) {
+                fixed[i] = random.nextBoolean();
+                inputs.add(subject.prepare(fixed[i], random));
+            }
+
+            for (int i = 0; i < count; ++i) {
+                final T input = inputs.get(i);
+                final long start = System.nanoTime();
+                for (int call = 0; call < batch; ++call) {
+                    sink += subject.run(input);
+                }
+                times[i] = System.nanoTime() - start;
+            }
+
+            for (int i = 0; i < count; ++i) {
+                final int sample = done + i;
+                if (sample < warmUpSamples) {
+                    warmUpTimes[sample] = times[i];
+                    continue;
+                }
+                if (crops == null) {
+                    crops = cropThresholds(warmUpTimes);
+                    for (int test = 0; test < tests.length; ++test) {
+                        tests[test] = new WelchTest();
+                    }
+                }
+                tests[0].add(fixed[i], times[i]);
+                for (int crop = 0; crop < CROPS; ++crop) {
+                    if (times[i] < crops[crop]) {
+                        tests[crop + 1].add(fixed[i], times[i]);
+                    }
+                }
+            }
+        }
+
+        // Keep the operations' results live.
+        TimingLeakDetector.sink = sink;
+
+        double max = 0;
+        for (final WelchTest test : tests) {
+            if (test != null && test.hasEnoughSamples()) {
+                max = Math.max(max, Math.abs(test.t()));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * dudect's percentiles: 1 - 0.5^(10 (i + 1) / CROPS), which crowd towards the bottom of the distribution.
+     */
+    private static long[] cropThresholds(final long[] warmUpTimes) {
+        final long[] sorted = warmUpTimes.clone();
+        Arrays.sort(sorted);
+        final long[] thresholds = new long[CROPS];
+        for (int i = 0; i < CROPS; ++i) {
+            final double percentile = 1 - Math.pow(0.5, 10.0 * (i + 1) / CROPS);
+            thresholds[i] = sorted.length == 0 ? Long.MAX_VALUE : sorted[(int) (percentile * (sorted.length - 1))];
+        }
+        return thresholds;
+    }
+
+    /**
+     * Welch's t-test over two classes, with means and variances kept online by Welford's method.
+     */
+    static final class WelchTest {
+
+        private final long[] counts = new long[2];
+        private final double[] means = new double[2];
+        private final double[] squares = new double[2];
+
+        void add(final boolean fixed, final double x) {
+            final int c = fixed ? 0 : 1;
+            ++counts[c];
+            final double delta = x - means[c];
+            means[c] += delta / counts[c];
+            squares[c] += delta * (x - means[c]);
+        }
+
+        boolean hasEnoughSamples() {
+            return MIN_SAMPLES_PER_TEST <= counts[0] && MIN_SAMPLES_PER_TEST <= counts[1];
+        }
+
+        double t() {
+            final double variance0 = squares[0] / (counts[0] - 1);
+            final double variance1 = squares[1] / (counts[1] - 1);
+            final double error = Math.sqrt(variance0 / counts[0] + variance1 / counts[1]);
+            return error == 0 ? 0 : (means[0] - means[1]) / error;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TimingLeakDetectorTest extends TestCase {
+
+    public void testWelchT() {
+        final TimingLeakDetector.WelchTest test = new TimingLeakDetector.WelchTest();
+        for (final double x : new double[]{1, 2, 3, 4}) {
+            test.add(true, x);
+        }
+        for (final double x : new double[]{2, 4, 6, 8}) {
+            test.add(false, x);
+        }
+
+        // Means 2.5 and 5, variances 5/3 and 20/3, four samples each.
+        final double expected = (2.5 - 5) / Math.sqrt((5.0 / 3 + 20.0 / 3) / 4);
+        assertEquals(expected, test.t(), 1e-9);
+    }
+
+    public void testDetectsEarlyExits() {
+        final byte[] secret = new byte[4096];
+        final TimingLeakDetector.Subject<byte[]> leaky = new TimingLeakDetector.Subject<byte[]>() {
+            @Override
+            public byte[] prepare(final boolean fixed, final Random random) {
+                final byte[] candidate = secret.clone();
+                if (!fixed) {
+                    candidate[0] = 1;
+                }
+                return candidate;
+            }
+
+            @Override
+            public int run(final byte[] candidate) {
+                return Arrays.equals(secret, candidate) ? 1 : 0;
+            }
+        };
+
+        final double t = new TimingLeakDetector(20_000, 4).maxT(leaky, new Random(0));
+        assertTrue("missed a leak; |t| was " + t, TimingLeakDetector.DEFAULT_THRESHOLD < t);
+    }
+}
@@ -0,0 +1,90 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Padding to a fixed envelope with {@link TimingPadding} against spinning {@link ConstantTimeOperations#nop(long)} for
+ * an iteration count measured once up front, as callers had to before. The score is how long each actually took; the
+ * {@code cpuNanos} and {@code wallNanos} counters, summed over the measurement iterations, give the share of that time
+ * the thread spent on a CPU.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimingPaddingBenchmark {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Param({"10", "100", "1000"})
+    public long micros;
+
+    private long envelopeNanos;
+    private long nopIterations;
+
+    @Setup
+    public void setUp() {
+        envelopeNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+
+        final long probe = 1_000_000;
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 20; ++i) {
+            final long start = System.nanoTime();
+            ConstantTimeOperations.nop(probe);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        nopIterations = Math.max(1, envelopeNanos * probe / best);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CpuTime {
+
+        public long cpuNanos;
+        public long wallNanos;
+
+        private long wallAtStart;
+        private long cpuAtStart;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            wallAtStart = System.nanoTime();
+            cpuAtStart = THREADS.getCurrentThreadCpuTime();
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() {
+            cpuNanos += THREADS.getCurrentThreadCpuTime() - cpuAtStart;
+            wallNanos += System.nanoTime() - wallAtStart;
+        }
+    }
+
+    @Benchmark
+    public void padUntil(final CpuTime cpu) {
+        TimingPadding.padUntil(System.nanoTime() + envelopeNanos);
+    }
+
+    @Benchmark
+    public byte nop(final CpuTime cpu) {
+        return ConstantTimeOperations.nop(nopIterations);
+    }
+}
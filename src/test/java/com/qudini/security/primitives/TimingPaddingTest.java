@@ -0,0 +1,81 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public class TimingPaddingTest extends TestCase {
+
+    public void testPadsUntilTheDeadline() {
+        for (final long micros : new long[]{0, 1, 50, 500, 5000}) {
+            final long start = System.nanoTime();
+            final long deadline = start + TimeUnit.MICROSECONDS.toNanos(micros);
+            TimingPadding.padUntil(deadline);
+            final long finished = System.nanoTime();
+            assertTrue("returned before the deadline", deadline <= finished);
+            assertTrue("returned long after the deadline", finished - deadline < TimeUnit.MILLISECONDS.toNanos(500));
+        }
+    }
+
+    public void testPastDeadlinesReturnAtOnce() {
+        final long start = System.nanoTime();
+        TimingPadding.padUntil(start - TimeUnit.SECONDS.toNanos(1));
+        TimingPadding.padFor(Duration.ZERO);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    public void testNegativeDurations() {
+        try {
+            TimingPadding.padFor(Duration.ofNanos(-1));
+            fail("a negative duration was accepted");
+        } catch (final IllegalArgumentException expected) {
+        }
+    }
+
+    public void testInterruptsDoNotCutPaddingShort() {
+        Thread.currentThread().interrupt();
+        try {
+            final long start = System.nanoTime();
+            TimingPadding.padFor(Duration.ofMillis(5));
+            assertTrue(TimeUnit.MILLISECONDS.toNanos(5) <= System.nanoTime() - start);
+            assertTrue("the interrupt status was lost", Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    public void testCalibration() {
+        TimingPadding.padFor(Duration.ofMillis(1));
+        assertTrue(0 <= TimingPadding.getParkOversleepNanos());
+        assertTrue(0 < TimingPadding.getPicosPerIteration());
+    }
+
+    public void testParkingResumesAfterALongPause() {
+        // As if a garbage collection had stopped the thread for a minute while it was parked.
+        TimingPadding.sampleParkOversleep(TimeUnit.MINUTES.toNanos(1));
+        final long oversleep = TimingPadding.getParkOversleepNanos();
+        assertTrue("estimated " + oversleep + "ns", oversleep < TimeUnit.MILLISECONDS.toNanos(10));
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isCurrentThreadCpuTimeSupported()) {
+            final long cpuStart = threads.getCurrentThreadCpuTime();
+            TimingPadding.padFor(Duration.ofMillis(50));
+            final long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+            assertTrue("spun for " + cpu + "ns instead of parking", cpu < TimeUnit.MILLISECONDS.toNanos(25));
+        }
+    }
+
+    public void testSpinningIsSampledAfterALongPause() {
+        // As if the thread had been preempted for a minute in a spin of a hundred iterations.
+        TimingPadding.samplePicosPerIteration(TimeUnit.MINUTES.toNanos(1) * 1000 / 100);
+        final long inflated = TimingPadding.getPicosPerIteration();
+
+        for (int i = 0; i < 20; ++i) {
+            TimingPadding.padFor(Duration.ofMillis(1));
+        }
+        assertTrue(TimingPadding.getPicosPerIteration() < inflated);
+    }
+}
@@ -0,0 +1,77 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up a 32-byte token among many with {@link TokenIndex}, against a {@link HashMap} keyed by the token as a
+ * string, whose time depends on hash chains and on how far {@code equals} gets. The {@code found} parameter is a
+ * timing-variance check: a {@code TokenIndex} lookup must take the same time whether the token is registered or not.
+ * Run with {@code -prof gc} to confirm lookups allocate nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenIndexBenchmark {
+
+    private static final int TOKEN_LENGTH = 32;
+
+    @Param({"1000", "1000000"})
+    public int tokens;
+
+    @Param({"true", "false"})
+    public boolean found;
+
+    private TokenIndex index;
+    private Map<String, Integer> map;
+    private byte[] token;
+    private String tokenString;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        index = TokenIndex.create(tokens);
+        map = new HashMap<>();
+        final byte[] registered = new byte[TOKEN_LENGTH];
+        for (int i = 0; i < tokens; ++i) {
+            random.nextBytes(registered);
+            index.put(registered, i);
+            map.put(Base64.getEncoder().encodeToString(registered), i);
+        }
+
+        token = found ? registered.clone() : new byte[TOKEN_LENGTH];
+        if (!found) {
+            random.nextBytes(token);
+        }
+        tokenString = new String(Base64.getEncoder().encode(token), StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public int lookup() {
+        return index.lookup(token);
+    }
+
+    @Benchmark
+    public Integer hashMapLookup() {
+        return map.get(tokenString);
+    }
+}
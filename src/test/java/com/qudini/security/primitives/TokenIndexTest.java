@@ -0,0 +1,74 @@
+package com.qudini.security.primitives;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class TokenIndexTest extends TestCase {
+
+    public void testSipHashReferenceVector() {
+        // From the appendix of the SipHash paper: key 00..0f, message 00..0e.
+        final byte[] message = new byte[15];
+        for (int i = 0; i < message.length; ++i) {
+            message[i] = (byte) i;
+        }
+        assertEquals(0xa129ca6149be45e5L, TokenIndex.sipHash24(0x0706050403020100L, 0x0f0e0d0c0b0a0908L, message));
+    }
+
+    public void testLookups() {
+        final Random random = new Random(42);
+        final TokenIndex index = TokenIndex.create();
+        final byte[][] tokens = new byte[20000][];
+        for (int i = 0; i < tokens.length; ++i) {
+            tokens[i] = new byte[8 + random.nextInt(40)];
+            random.nextBytes(tokens[i]);
+            index.put(tokens[i], i);
+        }
+        assertEquals(tokens.length, index.size());
+
+        for (int i = 0; i < tokens.length; ++i) {
+            assertEquals(i, index.lookup(tokens[i]));
+        }
+        for (int i = 0; i < 1000; ++i) {
+            final byte[] unknown = new byte[32];
+            random.nextBytes(unknown);
+            assertEquals(-1, index.lookup(unknown));
+        }
+        assertEquals(-1, index.lookup(new byte[0]));
+    }
+
+    public void testReplacingAndRemoving() {
+        final TokenIndex index = TokenIndex.create(10);
+        final byte[] token = "api-key-1".getBytes();
+        index.put(token, 1);
+        index.put(token.clone(), 7);
+        assertEquals(1, index.size());
+        assertEquals(7, index.lookup(token));
+
+        assertTrue(index.remove(token));
+        assertFalse(index.remove(token));
+        assertEquals(0, index.size());
+        assertEquals(-1, index.lookup(token));
+
+        index.put(token, 0);
+        assertEquals(0, index.lookup(token));
+    }
+
+    public void testInvalidArguments() {
+        try {
+            TokenIndex.create().put(new byte[8], -1);
+            fail("a negative id was accepted");
+        } catch (final IllegalArgumentException expected) {
+        }
+        try {
+            TokenIndex.create(-1);
+            fail("a negative size was accepted");
+        } catch (final IllegalArgumentException expected) {
+        }
+        try {
+            TokenIndex.create(Integer.MAX_VALUE);
+            fail("a size no index can hold was accepted");
+        } catch (final IllegalArgumentException expected) {
+        }
+    }
+}
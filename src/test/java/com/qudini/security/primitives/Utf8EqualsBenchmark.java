@@ -0,0 +1,108 @@
+package com.qudini.security.primitives;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking stored characters against a UTF-8 token. The {@code legacy} benchmark decodes the token into a temporary
+ * buffer, compares, and shreds the buffer, as callers had to before {@code equalsUtf8}; run with {@code -prof gc} to
+ * see the allocation it saves. With {@code callers} set to {@code mixed}, every kind of sequence is first checked
+ * through {@code equalsUtf8}, as happens when strings, builders and sequencers are all checked in one JVM.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Utf8EqualsBenchmark {
+
+    private static final int POLLUTING_CALLS = 100_000;
+
+    // One-, two-, three- and four-byte characters, the last a surrogate pair.
+    private static final int[] MIXED = "aé日🔑".codePoints().toArray();
+
+    @Param({"16", "64"})
+    public int size;
+
+    @Param({"ascii", "mixed"})
+    public String text;
+
+    @Param({"monomorphic", "mixed"})
+    public String callers;
+
+    private char[] stored;
+    private CharSequence storedSequence;
+    private CharSequence storedString;
+    private byte[] utf8;
+
+    @Setup
+    public void setUp() {
+        final SecureRandom random = new SecureRandom();
+        final StringBuilder builder = new StringBuilder(size);
+        while (builder.length() < size) {
+            if ("ascii".equals(text)) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            } else {
+                // Whole characters only, so the text never ends in half a surrogate pair.
+                final int codePoint = MIXED[random.nextInt(MIXED.length)];
+                if (Character.charCount(codePoint) <= size - builder.length()) {
+                    builder.appendCodePoint(codePoint);
+                }
+            }
+        }
+        stored = builder.toString().toCharArray();
+        storedSequence = new NonCopyingCharArraySequencer(stored);
+        storedString = builder.toString();
+        utf8 = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+        if ("mixed".equals(callers)) {
+            final CharSequence[] sequences = {
+                    storedString, new StringBuilder(builder), storedSequence, CharBuffer.wrap(stored),
+                    new SecureCharBuilder().append(stored)
+            };
+            int equal = 0;
+            for (int i = 0; i < POLLUTING_CALLS; ++i) {
+                equal += ConstantTimeOperations.equalsUtf8(sequences[i % sequences.length], utf8, size) ? 1 : 0;
+            }
+            if (equal != POLLUTING_CALLS) {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean equalsUtf8() {
+        return ConstantTimeOperations.equalsUtf8(storedSequence, utf8, size);
+    }
+
+    @Benchmark
+    public boolean equalsUtf8String() {
+        return ConstantTimeOperations.equalsUtf8(storedString, utf8, size);
+    }
+
+    @Benchmark
+    public boolean legacyDecodeThenEquals() {
+        final CharBuffer decoded = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(utf8));
+        try {
+            return ConstantTimeOperations.equals(CharBuffer.wrap(stored), decoded, size);
+        } finally {
+            Shredding.shred(decoded);
+        }
+    }
+}